@@ -1,7 +1,10 @@
 package pt.up.fe.comp2024;
 
 import java.io.File;
+import java.nio.file.Path;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
@@ -10,6 +13,18 @@ public class CompilerConfig {
     private static final String INPUT_FILE = "inputFile";
     private static final String OPTIMIZE = "optimize";
     private static final String REGISTER = "registerAllocation";
+    private static final String PARSER = "parser";
+    private static final String LEXER = "lexer";
+    private static final String COMPACT_AST = "compactAst";
+    private static final String PARALLEL = "parallel";
+    private static final String CLASS_PATH = "classPath";
+    private static final String SYMBOL_TABLE_DIR = "symbolTableDir";
+
+    public static final String ANTLR_PARSER = "antlr";
+    public static final String DESCENT_PARSER = "descent";
+
+    public static final String ANTLR_LEXER = "antlr";
+    public static final String HANDWRITTEN_LEXER = "handwritten";
 
 
     static Map<String, String> shortToLong = new HashMap<>();
@@ -18,6 +33,12 @@ public class CompilerConfig {
         shortToLong.put("i", CompilerConfig.INPUT_FILE);
         shortToLong.put("o", CompilerConfig.OPTIMIZE);
         shortToLong.put("r", CompilerConfig.REGISTER);
+        shortToLong.put("p", CompilerConfig.PARSER);
+        shortToLong.put("l", CompilerConfig.LEXER);
+        shortToLong.put("c", CompilerConfig.COMPACT_AST);
+        shortToLong.put("t", CompilerConfig.PARALLEL);
+        shortToLong.put("j", CompilerConfig.CLASS_PATH);
+        shortToLong.put("s", CompilerConfig.SYMBOL_TABLE_DIR);
     }
 
 
@@ -36,10 +57,73 @@ public class CompilerConfig {
         return Boolean.parseBoolean(config.getOrDefault(OPTIMIZE, "false"));
     }
 
+    public static boolean getCompactAst(Map<String, String> config) {
+        return Boolean.parseBoolean(config.getOrDefault(COMPACT_AST, "false"));
+    }
+
+    public static boolean getParallel(Map<String, String> config) {
+        return Boolean.parseBoolean(config.getOrDefault(PARALLEL, "false"));
+    }
+
+    /**
+     * @param config
+     * @return the directories where the class files of imported classes are looked for, separated in the option by
+     * the path separator of the platform, e.g. '-j=libs-jmm/compiled'
+     */
+    public static List<Path> getClassPath(Map<String, String> config) {
+        var classPath = config.getOrDefault(CLASS_PATH, "");
+
+        return Arrays.stream(classPath.split(File.pathSeparator))
+                .filter(directory -> !directory.isBlank())
+                .map(Path::of)
+                .toList();
+    }
+
+    /**
+     * @param config
+     * @return the directory where the symbol table of a compiled class is written, e.g. '-s=out', and where the symbol
+     * tables of imported classes are also looked for, or Optional.empty() if symbol tables are not written
+     */
+    public static Optional<Path> getSymbolTableDir(Map<String, String> config) {
+        return Optional.ofNullable(config.get(SYMBOL_TABLE_DIR))
+                .filter(directory -> !directory.isBlank())
+                .map(Path::of);
+    }
+
     public static int getRegisterAllocation(Map<String, String> config) {
         return Integer.parseInt(config.getOrDefault(REGISTER, "-1"));
     }
 
+    /**
+     * @param config
+     * @return the parser to use, either {@link #ANTLR_PARSER} (the default) or {@link #DESCENT_PARSER}
+     */
+    public static String getParser(Map<String, String> config) {
+        var parser = config.getOrDefault(PARSER, ANTLR_PARSER);
+
+        if (!parser.equals(ANTLR_PARSER) && !parser.equals(DESCENT_PARSER)) {
+            throw new RuntimeException("Unknown parser '" + parser + "', expected '" + ANTLR_PARSER + "' or '" +
+                    DESCENT_PARSER + "'");
+        }
+
+        return parser;
+    }
+
+    /**
+     * @param config
+     * @return the lexer to use, either {@link #ANTLR_LEXER} (the default) or {@link #HANDWRITTEN_LEXER}
+     */
+    public static String getLexer(Map<String, String> config) {
+        var lexer = config.getOrDefault(LEXER, ANTLR_LEXER);
+
+        if (!lexer.equals(ANTLR_LEXER) && !lexer.equals(HANDWRITTEN_LEXER)) {
+            throw new RuntimeException("Unknown lexer '" + lexer + "', expected '" + ANTLR_LEXER + "' or '" +
+                    HANDWRITTEN_LEXER + "'");
+        }
+
+        return lexer;
+    }
+
 
     public static Map<String, String> getDefault() {
 
@@ -106,6 +190,12 @@ public class CompilerConfig {
         // Verify if values are valid
         getOptimize(config);
         getRegisterAllocation(config);
+        getParser(config);
+        getLexer(config);
+        getCompactAst(config);
+        getParallel(config);
+        getClassPath(config);
+        getSymbolTableDir(config);
 
         return config;
     }
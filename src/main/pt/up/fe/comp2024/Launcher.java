@@ -1,5 +1,6 @@
 package pt.up.fe.comp2024;
 
+import org.antlr.v4.runtime.CharStream;
 import pt.up.fe.comp.TestUtils;
 import pt.up.fe.comp.jmm.analysis.JmmSemanticsResult;
 import pt.up.fe.comp.jmm.jasmin.JasminResult;
@@ -9,9 +10,14 @@ import pt.up.fe.comp2024.analysis.JmmAnalysisImpl;
 import pt.up.fe.comp2024.backend.JasminBackendImpl;
 import pt.up.fe.comp2024.optimization.JmmOptimizationImpl;
 import pt.up.fe.comp2024.parser.JmmParserImpl;
-import pt.up.fe.specs.util.SpecsIo;
+import pt.up.fe.comp2024.parser.MappedCharStream;
+import pt.up.fe.comp2024.symboltable.JmmSymbolTable;
+import pt.up.fe.comp2024.symboltable.SymbolTableFile;
 import pt.up.fe.specs.util.SpecsSystem;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Map;
 
 public class Launcher {
@@ -25,7 +31,12 @@ public class Launcher {
         if (!inputFile.isFile()) {
             throw new RuntimeException("Option '-i' expects a path to an existing input file, got '" + args[0] + "'.");
         }
-        String code = SpecsIo.read(inputFile);
+        CharStream code;
+        try {
+            code = MappedCharStream.open(inputFile.toPath());
+        } catch (IOException e) {
+            throw new RuntimeException("Could not read input file '" + inputFile + "'", e);
+        }
 
         // Parsing stage
         JmmParserImpl parser = new JmmParserImpl();
@@ -40,7 +51,6 @@ public class Launcher {
         JmmSemanticsResult semanticsResult = sema.semanticAnalysis(parserResult);
         TestUtils.noErrors(semanticsResult.getReports());
 
-
         // Optimization stage
         JmmOptimizationImpl ollirGen = new JmmOptimizationImpl();
         OllirResult ollirResult = ollirGen.toOllir(semanticsResult);
@@ -56,6 +66,21 @@ public class Launcher {
 
         // Print Jasmin code
         //System.out.println(jasminResult.getJasminCode());
+
+        // Write the symbol table, if asked to, for the units that import the class. Only classes that compiled are
+        // written, so a failed compilation does not leave a table behind
+        CompilerConfig.getSymbolTableDir(config).ifPresent(directory ->
+                writeSymbolTable(JmmSymbolTable.of(semanticsResult.getSymbolTable()), directory));
+    }
+
+    private static void writeSymbolTable(JmmSymbolTable symbolTable, Path directory) {
+        var symbolTableFile = SymbolTableFile.getPath(directory, symbolTable.getClassName());
+        try {
+            Files.createDirectories(directory);
+            SymbolTableFile.write(symbolTable, symbolTableFile);
+        } catch (IOException e) {
+            throw new RuntimeException("Could not write symbol table '" + symbolTableFile + "'", e);
+        }
     }
 
 }
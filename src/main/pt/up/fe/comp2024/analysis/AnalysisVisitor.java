@@ -2,8 +2,8 @@ package pt.up.fe.comp2024.analysis;
 
 import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
 import pt.up.fe.comp.jmm.ast.JmmNode;
-import pt.up.fe.comp.jmm.ast.PreorderJmmVisitor;
 import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp2024.ast.PreorderKindVisitor;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -11,7 +11,7 @@ import java.util.List;
 /**
  *
  */
-public abstract class AnalysisVisitor extends PreorderJmmVisitor<SymbolTable, Void> implements AnalysisPass {
+public abstract class AnalysisVisitor extends PreorderKindVisitor<SymbolTable, Void> implements AnalysisPass {
 
     private List<Report> reports;
 
@@ -29,6 +29,16 @@ public abstract class AnalysisVisitor extends PreorderJmmVisitor<SymbolTable, Vo
     }
 
 
+    /**
+     * Visits a single node, without visiting its children.
+     *
+     * @param node
+     * @param table
+     */
+    void visitNode(JmmNode node, SymbolTable table) {
+        getVisit(node).apply(node, table);
+    }
+
     @Override
     public List<Report> analyze(JmmNode root, SymbolTable table) {
         // Visit the node
@@ -0,0 +1,136 @@
+package pt.up.fe.comp2024.analysis;
+
+import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp.jmm.report.Stage;
+import pt.up.fe.comp2024.ast.Kind;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Runs several analysis passes over a single traversal of the AST.
+ * <p>
+ * Passes that are {@link AnalysisVisitor}s are visited together: each node is visited by every one of them, in the
+ * order of the passes, before its children, which is the order each pass would see the nodes in on its own. Other
+ * passes run on their own. Reports are returned in the order of the passes, as if they had run one after the other.
+ * <p>
+ * The methods of the class can also be analysed concurrently, each by its own instances of the passes, with the reports
+ * merged in the same order. Passes may keep state about the method being visited, set when visiting its declaration,
+ * since each method is visited from its declaration, but no other state between nodes other than their reports.
+ */
+public class FusedAnalysis {
+
+    private final List<Supplier<AnalysisPass>> passes;
+
+    public FusedAnalysis(List<Supplier<AnalysisPass>> passes) {
+        this.passes = passes;
+    }
+
+    public List<Report> analyze(JmmNode root, SymbolTable table) {
+        var run = new Run();
+        run.visit(root, table, false);
+
+        return merge(root, table, List.of(run));
+    }
+
+    /**
+     * Analyses each method in parallel, and the rest of the AST on the calling thread.
+     *
+     * @param root
+     * @param table
+     * @return the same reports as {@link #analyze(JmmNode, SymbolTable)}, in the same order
+     */
+    public List<Report> analyzeParallel(JmmNode root, SymbolTable table) {
+        // Methods come after every other node in preorder, so their reports go after the others
+        var outside = new Run();
+        outside.visit(root, table, true);
+
+        var methodRuns = root.getDescendants(Kind.METHOD_DECL).parallelStream()
+                .map(method -> {
+                    var run = new Run();
+                    run.visit(method, table, false);
+                    return run;
+                })
+                .toList();
+
+        List<Run> runs = new ArrayList<>();
+        runs.add(outside);
+        runs.addAll(methodRuns);
+
+        return merge(root, table, runs);
+    }
+
+    private List<Report> merge(JmmNode root, SymbolTable table, List<Run> runs) {
+        List<Report> reports = new ArrayList<>();
+
+        for (int i = 0; i < passes.size(); i++) {
+            var pass = runs.get(0).passes.get(i);
+            try {
+                if (!(pass instanceof AnalysisVisitor)) {
+                    reports.addAll(pass.analyze(root, table));
+                    continue;
+                }
+
+                // A pass that threw in any part of the AST is reported as having failed, as it would on its own
+                for (var run : runs) {
+                    if (run.failures[i] != null) {
+                        throw run.failures[i];
+                    }
+                }
+
+                for (var run : runs) {
+                    reports.addAll(((AnalysisVisitor) run.passes.get(i)).getReports());
+                }
+            } catch (Exception e) {
+                reports.add(Report.newError(Stage.SEMANTIC,
+                        -1,
+                        -1,
+                        "Problem while executing analysis pass '" + pass.getClass() + "'",
+                        e)
+                );
+            }
+        }
+
+        return reports;
+    }
+
+    /**
+     * New instances of the passes visiting part of the AST, with the exception thrown by each pass, if any.
+     */
+    private class Run {
+
+        private final List<AnalysisPass> passes;
+        private final Exception[] failures;
+
+        private Run() {
+            this.passes = FusedAnalysis.this.passes.stream().map(Supplier::get).toList();
+            this.failures = new Exception[passes.size()];
+        }
+
+        private void visit(JmmNode node, SymbolTable table, boolean skipMethods) {
+            if (skipMethods && Kind.METHOD_DECL.check(node)) {
+                return;
+            }
+
+            for (int i = 0; i < passes.size(); i++) {
+                // A pass that threw stops, as it would on its own
+                if (failures[i] != null || !(passes.get(i) instanceof AnalysisVisitor visitor)) {
+                    continue;
+                }
+
+                try {
+                    visitor.visitNode(node, table);
+                } catch (Exception e) {
+                    failures[i] = e;
+                }
+            }
+
+            for (var child : node.getChildren()) {
+                visit(child, table, skipMethods);
+            }
+        }
+    }
+}
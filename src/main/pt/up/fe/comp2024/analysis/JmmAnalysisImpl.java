@@ -2,59 +2,88 @@ package pt.up.fe.comp2024.analysis;
 
 import pt.up.fe.comp.jmm.analysis.JmmAnalysis;
 import pt.up.fe.comp.jmm.analysis.JmmSemanticsResult;
-import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
 import pt.up.fe.comp.jmm.ast.JmmNode;
 import pt.up.fe.comp.jmm.parser.JmmParserResult;
 import pt.up.fe.comp.jmm.report.Report;
-import pt.up.fe.comp.jmm.report.Stage;
+import pt.up.fe.comp2024.CompilerConfig;
 import pt.up.fe.comp2024.analysis.passes.*;
+import pt.up.fe.comp2024.ast.TypeUtils;
+import pt.up.fe.comp2024.symboltable.ImportedTables;
+import pt.up.fe.comp2024.symboltable.JmmSymbolTable;
 import pt.up.fe.comp2024.symboltable.JmmSymbolTableBuilder;
+import pt.up.fe.comp2024.symboltable.SymbolBinder;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 public class JmmAnalysisImpl implements JmmAnalysis {
 
 
-    private final List<AnalysisPass> analysisPasses;
+    // Passes collect their reports, so each analysis creates its own
+    private final List<Supplier<AnalysisPass>> analysisPasses;
 
     public JmmAnalysisImpl() {
 
         this.analysisPasses = List.of(
-                new UndeclaredVariable(),
-                new TypeExists(),
-                new CompatibleTypes(),
-                new ConditionBooleanType(),
-                new ArrayAndSeqVerification(),
-                new MethodCallCheck(),
-                new MethodCallParamCheck()
+                UndeclaredVariable::new,
+                TypeExists::new,
+                CompatibleTypes::new,
+                ConditionBooleanType::new,
+                ArrayAndSeqVerification::new,
+                MethodCallCheck::new,
+                MethodCallParamCheck::new
         );
 
     }
 
+    /**
+     * @return the suppliers of the analysis passes, in the order they run
+     */
+    List<Supplier<AnalysisPass>> getAnalysisPasses() {
+        return analysisPasses;
+    }
+
     @Override
     public JmmSemanticsResult semanticAnalysis(JmmParserResult parserResult) {
+        return semanticAnalysis(parserResult, JmmSymbolTableBuilder.build(parserResult.getRootNode()));
+    }
+
+    /**
+     * Analyses the AST with a symbol table already built for it, e.g. by {@link JmmSymbolTableBuilder#update} after an
+     * incremental parse.
+     *
+     * @param parserResult
+     * @param table        the symbol table of the declarations of the AST
+     * @return
+     */
+    public JmmSemanticsResult semanticAnalysis(JmmParserResult parserResult, JmmSymbolTable table) {
 
         JmmNode rootNode = parserResult.getRootNode();
 
-        SymbolTable table = JmmSymbolTableBuilder.build(rootNode);
+        // Imported classes compiled before this one may have left their symbol table next to their source or in the
+        // symbol table directory, other classes are read from their class files
+        var config = parserResult.getConfig();
+        var inputDirectory = CompilerConfig.getInputFile(config).map(file -> file.getAbsoluteFile().toPath().getParent());
+        var directories = Stream.concat(inputDirectory.stream(), CompilerConfig.getSymbolTableDir(config).stream())
+                .distinct()
+                .toList();
+        var classPath = CompilerConfig.getClassPath(config);
+        table.setImportedTables(new ImportedTables(directories, classPath));
 
-        List<Report> reports = new ArrayList<>();
+        // Resolve every variable reference once, for the passes and the later stages
+        SymbolBinder.bind(rootNode, table);
+        TypeUtils.annotateTypes(rootNode, table);
 
-        // Visit all nodes in the AST
-        for (var analysisPass : analysisPasses) {
-            try {
-                var passReports = analysisPass.analyze(rootNode, table);
-                reports.addAll(passReports);
-            } catch (Exception e) {
-                reports.add(Report.newError(Stage.SEMANTIC,
-                        -1,
-                        -1,
-                        "Problem while executing analysis pass '" + analysisPass.getClass() + "'",
-                        e)
-                );
-            }
+        List<Report> reports = new ArrayList<>();
 
+        // Visit all nodes in the AST once, running every pass on each node
+        var analysis = new FusedAnalysis(analysisPasses);
+        if (CompilerConfig.getParallel(parserResult.getConfig())) {
+            reports.addAll(analysis.analyzeParallel(rootNode, table));
+        } else {
+            reports.addAll(analysis.analyze(rootNode, table));
         }
 
         return new JmmSemanticsResult(parserResult, table, reports);
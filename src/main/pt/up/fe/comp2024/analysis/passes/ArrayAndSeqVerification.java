@@ -1,7 +1,6 @@
 package pt.up.fe.comp2024.analysis.passes;
 
 import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
-import pt.up.fe.comp.jmm.analysis.table.Type;
 import pt.up.fe.comp.jmm.ast.JmmNode;
 import pt.up.fe.comp.jmm.report.Report;
 import pt.up.fe.comp.jmm.report.Stage;
@@ -34,7 +33,7 @@ public class ArrayAndSeqVerification extends AnalysisVisitor {
         var rhsType = TypeUtils.getExprType(rhs, table);
         var lhsType = TypeUtils.getExprType(lhs, table);
 
-        if(!rhsType.isArray() && !Objects.equals(rhsType, new Type(TypeUtils.getIntSeqTypeName(), false))) {
+        if(!rhsType.isArray() && !Objects.equals(rhsType, TypeUtils.getIntSeqType())) {
             // Create error report
             var message = String.format("Variable '%s' is neither an array or Sequence.", rhs);
             addReport(Report.newError(
@@ -45,7 +44,7 @@ public class ArrayAndSeqVerification extends AnalysisVisitor {
                     null)
             );
         }
-        if(!Objects.equals(lhsType, new Type(TypeUtils.getIntTypeName(), false)) ) {
+        if(!Objects.equals(lhsType, TypeUtils.getIntType()) ) {
             // Create error report
             var message = String.format("Variable '%s' must be an Integer.", lhs);
             addReport(Report.newError(
@@ -62,7 +61,7 @@ public class ArrayAndSeqVerification extends AnalysisVisitor {
     private Void visitArraySizeExpr(JmmNode arraySizeExpr, SymbolTable table) {
         var expr = arraySizeExpr.getJmmChild(0);
         var exprType = TypeUtils.getExprType(expr, table);
-        if(!Objects.equals(exprType, new Type(TypeUtils.getIntTypeName(), false))) {
+        if(!Objects.equals(exprType, TypeUtils.getIntType())) {
             var message = String.format("Variable '%s' must be an Integer.", expr);
             addReport(Report.newError(
                     Stage.SEMANTIC,
@@ -78,7 +77,7 @@ public class ArrayAndSeqVerification extends AnalysisVisitor {
     private Void visitNewArrayExpr(JmmNode newArrayExpr, SymbolTable table) {
         for(var expr : newArrayExpr.getChildren()) {
             var exprType = TypeUtils.getExprType(expr, table);
-            if(!Objects.equals(exprType, new Type(TypeUtils.getIntTypeName(), false))) {
+            if(!Objects.equals(exprType, TypeUtils.getIntType())) {
                 var message = String.format("Variable '%s' must be an Integer.", expr);
                 addReport(Report.newError(
                         Stage.SEMANTIC,
@@ -96,7 +95,7 @@ public class ArrayAndSeqVerification extends AnalysisVisitor {
         var array = lengthExpr.getJmmChild(0);
         var arrayType = TypeUtils.getExprType(array, table);
 
-        if (!arrayType.isArray() && !Objects.equals(arrayType, new Type(TypeUtils.getIntSeqTypeName(), false))) {
+        if (!arrayType.isArray() && !Objects.equals(arrayType, TypeUtils.getIntSeqType())) {
             // Create error report
             var message = String.format("Variable '%s' is not an array.", array);
             addReport(Report.newError(
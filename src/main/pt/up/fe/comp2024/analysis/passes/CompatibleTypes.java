@@ -32,7 +32,7 @@ public class CompatibleTypes extends AnalysisVisitor {
 
         var exprType = TypeUtils.getExprType(expr, table);
 
-        if(!Objects.equals(exprType, new Type(TypeUtils.getBooleanTypeName(), false))){
+        if(!Objects.equals(exprType, TypeUtils.getBooleanType())){
             var message = String.format("Operation '%s' only usable with Booleans.", unaryOpExpr);
             addReport(Report.newError(
                     Stage.SEMANTIC,
@@ -52,7 +52,7 @@ public class CompatibleTypes extends AnalysisVisitor {
         var rhsType = TypeUtils.getExprType(rhs, table);
         var lhsType = TypeUtils.getExprType(lhs, table);
 
-//        if(Objects.equals(rhsType, new Type(TypeUtils.getImportedTypeName(), false)))
+//        if(Objects.equals(rhsType, TypeUtils.getImportedType()))
 //            return null;
 
         if(lhsType == null)
@@ -100,7 +100,7 @@ public class CompatibleTypes extends AnalysisVisitor {
                 rhsType.getName().equals(table.getSuper()))
             return null;
 
-        if(Objects.equals(lhsType, new Type(TypeUtils.getImportedTypeName(), false))){
+        if(Objects.equals(lhsType, TypeUtils.getImportedType())){
             return null;
         }
 
@@ -120,7 +120,8 @@ public class CompatibleTypes extends AnalysisVisitor {
         var expr = returnStmt.getJmmChild(0);
         var exprType = TypeUtils.getExprType(expr, table);
 
-        var method = returnStmt.getParent();
+        // A return can be nested in other statements, e.g. in a branch of an if
+        var method = returnStmt.getAncestor(Kind.METHOD_DECL).get();
         var methodType = table.getReturnType(method.get("name"));
         if(exprType == null)
             return null;
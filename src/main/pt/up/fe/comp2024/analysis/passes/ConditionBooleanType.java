@@ -1,7 +1,6 @@
 package pt.up.fe.comp2024.analysis.passes;
 
 import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
-import pt.up.fe.comp.jmm.analysis.table.Type;
 import pt.up.fe.comp.jmm.ast.JmmNode;
 import pt.up.fe.comp.jmm.report.Report;
 import pt.up.fe.comp.jmm.report.Stage;
@@ -19,8 +18,6 @@ import java.util.Objects;
  */
 public class ConditionBooleanType extends AnalysisVisitor {
 
-    private String currentMethod;
-
     @Override
     public void buildVisitor() {
         addVisit(Kind.IF_ELSE_STMT, this::visitCheckCondition);
@@ -31,7 +28,7 @@ public class ConditionBooleanType extends AnalysisVisitor {
         var cond = stmt.getJmmChild(0);
         var condType = TypeUtils.getExprType(cond, table);
 
-        if(!Objects.equals(condType, new Type(TypeUtils.getBooleanTypeName(), false))){
+        if(!Objects.equals(condType, TypeUtils.getBooleanType())){
             var message = String.format("Condition '%s' must be of Type Boolean.", cond);
             addReport(Report.newError(
                     Stage.SEMANTIC,
@@ -9,6 +9,7 @@ import pt.up.fe.comp2024.analysis.AnalysisVisitor;
 import pt.up.fe.comp2024.ast.Kind;
 import pt.up.fe.comp2024.ast.NodeUtils;
 import pt.up.fe.comp2024.ast.TypeUtils;
+import pt.up.fe.comp2024.symboltable.JmmSymbolTable;
 
 import java.util.Objects;
 
@@ -27,17 +28,11 @@ public class MethodCallCheck extends AnalysisVisitor {
     }
 
     private boolean isImported(Type type, SymbolTable table) {
-        for(var importDecl : table.getImports())
-            if(importDecl.equals(type.getName()))
-                return true;
-        return false;
+        return JmmSymbolTable.of(table).isImport(type.getName());
     }
 
     private boolean isMethodDefined(String methodName, SymbolTable table) {
-        for(var method : table.getMethods())
-            if(method.equals(methodName))
-                return true;
-        return false;
+        return JmmSymbolTable.of(table).hasMethod(methodName);
     }
 
     private Void visitMethodCallExpr(JmmNode methodCallExpr, SymbolTable table) {
@@ -48,9 +43,24 @@ public class MethodCallCheck extends AnalysisVisitor {
         var classType = TypeUtils.getExprType(className, table);
 
         if(classType == null) // Safe to assume it's an imported class TODO: maybe create a type
-            classType = new Type(className.get("name"), false);
+            classType = TypeUtils.getType(className.get("name"), false);
 
         if(isImported(classType, table)){
+            // Methods of imported classes can only be checked if their symbol table was found
+            var importedTable = JmmSymbolTable.of(table).getImportedTable(classType.getName());
+            if(importedTable.isEmpty() || importedTable.get().hasMethod(methodName)
+                    || !importedTable.get().getSuper().isEmpty()){
+                return null;
+            }
+
+            var message = String.format("Method '%s' is not declared in class '%s'.", methodName, classType.getName());
+            addReport(Report.newError(
+                    Stage.SEMANTIC,
+                    NodeUtils.getLine(methodCallExpr),
+                    NodeUtils.getColumn(methodCallExpr),
+                    message,
+                    null)
+            );
             return null;
         }
 
@@ -79,10 +89,10 @@ public class MethodCallCheck extends AnalysisVisitor {
 
     private Void visitReturnStmt(JmmNode returnStmt, SymbolTable table) {
         // Void functions
-        var returnTypeDecl = table.getReturnType(returnStmt.getParent().get("name"));
+        var returnTypeDecl = table.getReturnType(returnStmt.getAncestor(Kind.METHOD_DECL).get().get("name"));
 
         if(returnStmt.getChildren().isEmpty()){
-            if(!Objects.equals(returnTypeDecl, new Type("void", false))){
+            if(!Objects.equals(returnTypeDecl, TypeUtils.getType("void", false))){
                 var message = String.format("Method is void but '%s' found.", returnStmt);
                 addReport(Report.newError(
                         Stage.SEMANTIC,
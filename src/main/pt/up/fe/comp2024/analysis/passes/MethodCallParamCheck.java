@@ -9,6 +9,7 @@ import pt.up.fe.comp2024.analysis.AnalysisVisitor;
 import pt.up.fe.comp2024.ast.Kind;
 import pt.up.fe.comp2024.ast.NodeUtils;
 import pt.up.fe.comp2024.ast.TypeUtils;
+import pt.up.fe.comp2024.symboltable.JmmSymbolTable;
 
 import java.util.Objects;
 
@@ -26,17 +27,11 @@ public class MethodCallParamCheck extends AnalysisVisitor {
     }
 
     private boolean isImported(Type type, SymbolTable table) {
-        for(var importDecl : table.getImports())
-            if(importDecl.equals(type.getName()))
-                return true;
-        return false;
+        return JmmSymbolTable.of(table).isImport(type.getName());
     }
 
     private boolean isMethodDefined(String methodName, SymbolTable table) {
-        for(var method : table.getMethods())
-            if(method.equals(methodName))
-                return true;
-        return false;
+        return JmmSymbolTable.of(table).hasMethod(methodName);
     }
 
     private Void visitMethodCallExpr(JmmNode methodCallExpr, SymbolTable table) {
@@ -46,7 +41,7 @@ public class MethodCallParamCheck extends AnalysisVisitor {
 
         var classType = TypeUtils.getExprType(className, table);
         if(classType == null) // Safe to assume it's an imported class TODO: maybe create a type
-            classType = new Type(className.get("name"), false);
+            classType = TypeUtils.getType(className.get("name"), false);
 
         if(isImported(classType, table)){
             return null;
@@ -67,7 +62,7 @@ public class MethodCallParamCheck extends AnalysisVisitor {
         // Can only happen if not seq
         boolean hasSeq = false;
         for(var param : paramDecl)
-            if(Objects.equals(param.getType(), new Type(TypeUtils.getIntSeqTypeName(), false)))
+            if(Objects.equals(param.getType(), TypeUtils.getIntSeqType()))
                 hasSeq = true;
 
 
@@ -108,7 +103,7 @@ public class MethodCallParamCheck extends AnalysisVisitor {
                 }else{
                     var given = methodCallExpr.getJmmChild(i);
 
-                    var expectedType = new Type(TypeUtils.getIntTypeName(), false);
+                    var expectedType = TypeUtils.getIntType();
                     var givenType = TypeUtils.getExprType(given, table);
                     if(!Objects.equals(expectedType, givenType)){
                         // Create error report
@@ -28,20 +28,20 @@ public class TypeExists extends AnalysisVisitor {
 
     private boolean isDeclaredType(Type type, SymbolTable table) {
         List<Type> types = List.of(
-                new Type(TypeUtils.getIntTypeName(), false),
-                new Type(TypeUtils.getIntSeqTypeName(), false),
-                new Type(TypeUtils.getIntTypeName(), true),
-                new Type(TypeUtils.getBooleanTypeName(), false),
-                new Type(table.getClassName(), false),
-                new Type(table.getClassName(), true)
+                TypeUtils.getIntType(),
+                TypeUtils.getIntSeqType(),
+                TypeUtils.getIntArrayType(),
+                TypeUtils.getBooleanType(),
+                TypeUtils.getType(table.getClassName(), false),
+                TypeUtils.getType(table.getClassName(), true)
         );
         for(var t : types)
             if(Objects.equals(t, type))
                 return true;
 
         for(var imported : table.getImports())
-            if (Objects.equals(new Type(imported, false), type) ||
-                    Objects.equals(new Type(imported, true), type))
+            if (Objects.equals(TypeUtils.getType(imported, false), type) ||
+                    Objects.equals(TypeUtils.getType(imported, true), type))
                 return true;
 
         return false;
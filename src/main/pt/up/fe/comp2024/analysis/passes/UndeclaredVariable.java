@@ -7,6 +7,10 @@ import pt.up.fe.comp.jmm.report.Stage;
 import pt.up.fe.comp2024.analysis.AnalysisVisitor;
 import pt.up.fe.comp2024.ast.Kind;
 import pt.up.fe.comp2024.ast.NodeUtils;
+import pt.up.fe.comp2024.symboltable.JmmSymbolTable;
+import pt.up.fe.comp2024.symboltable.ResolvedSymbol;
+import pt.up.fe.comp2024.symboltable.SymbolBinder;
+import pt.up.fe.comp2024.symboltable.SymbolScope;
 import pt.up.fe.specs.util.SpecsCheck;
 
 /**
@@ -16,7 +20,8 @@ import pt.up.fe.specs.util.SpecsCheck;
  */
 public class UndeclaredVariable extends AnalysisVisitor {
 
-    private String currentMethod;
+    private JmmNode currentMethod;
+    private JmmSymbolTable jmmTable;
 
     @Override
     public void buildVisitor() {
@@ -25,7 +30,8 @@ public class UndeclaredVariable extends AnalysisVisitor {
     }
 
     private Void visitMethodDecl(JmmNode method, SymbolTable table) {
-        currentMethod = method.get("name");
+        currentMethod = method;
+        jmmTable = JmmSymbolTable.of(table);
         return null;
     }
 
@@ -35,35 +41,25 @@ public class UndeclaredVariable extends AnalysisVisitor {
         // Check if exists a parameter or variable declaration with the same name as the variable reference
         var varRefName = varRefExpr.get("name");
 
-        // Var is a declared variable, return
-        if (table.getLocalVariables(currentMethod).stream()
-                .anyMatch(varDecl -> varDecl.getName().equals(varRefName))) {
-            return null;
-        }
-        // Var is a parameter, return
-        if (table.getParameters(currentMethod).stream()
-                .anyMatch(param -> param.getName().equals(varRefName))) {
+        // Declaration found by the binding pass, or looked up here if the pass did not run
+        var scope = SymbolBinder.resolve(varRefExpr, table)
+                .map(ResolvedSymbol::scope)
+                .orElse(null);
+
+        // Var is a declared variable or a parameter, return
+        if (scope == SymbolScope.LOCAL || scope == SymbolScope.PARAM) {
             return null;
         }
 
         // Var is a field, return
-        if (table.getFields().stream()
-                .anyMatch(param -> param.getName().equals(varRefName))) {
-            if(varRefExpr.getAncestor(Kind.METHOD_DECL).isPresent()){
-                var method = varRefExpr.getAncestor(Kind.METHOD_DECL).get();
-                if(!method.get("isStatic").equals("true")){
-                    return null;
-                }
+        if (scope == SymbolScope.FIELD) {
+            if(!currentMethod.get("isStatic").equals("true")){
+                return null;
             }
         }
 
-
-
-
-
-        for(var imported : table.getImports())
-            if(imported.equals(varRefName))
-                return null;
+        if (jmmTable.isImport(varRefName))
+            return null;
 
         // Create error report
         var message = String.format("Variable '%s' does not exist.", varRefName);
@@ -0,0 +1,335 @@
+package pt.up.fe.comp2024.ast;
+
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp.jmm.ast.NodePosition;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Read-only AST stored as a struct of arrays, indexed by the preorder position of each node.
+ * <p>
+ * The kind of a node is the ordinal of its {@link Kind}, the tree is given by parent, first child and next sibling
+ * indexes, and attribute names and values are interned in pools shared by every node. Nodes are accessed through
+ * {@link CompactJmmNode} views, created on demand and reused, so the AST can be passed to any code that expects a
+ * {@link JmmNode}.
+ * <p>
+ * Since nodes are in preorder, the descendants of a node are the nodes after it up to the end of its subtree, and can be
+ * traversed without following references.
+ * <p>
+ * A compact AST is copied from a regular AST, so both are in memory while it is built: it reduces the memory held by
+ * the later stages, not the peak memory of parsing.
+ */
+public class CompactAst {
+
+    private static final String[] POSITION_KEYS = {
+            NodePosition.LINE_START.getKey(), NodePosition.COL_START.getKey(),
+            NodePosition.LINE_END.getKey(), NodePosition.COL_END.getKey()
+    };
+
+    private static final int NONE = -1;
+
+    private final int size;
+
+    // Per node
+    private final int[] kinds;
+    private final int[] parents;
+    private final int[] firstChildren;
+    private final int[] nextSiblings;
+    private final int[] numChildren;
+    private final int[] subtreeEnds;
+    private final int[] positions;
+    private final int[] attributeStarts;
+
+    // Per attribute, the attributes of node i are in [attributeStarts[i], attributeStarts[i + 1])
+    private final int[] attributeKeys;
+    private final int[] attributeValues;
+
+    private final List<String> keyPool = new ArrayList<>();
+    private final List<Object> valuePool = new ArrayList<>();
+
+    // Hierarchy of each kind, as found in the source AST
+    private final List<Collection<String>> hierarchies;
+
+    // Views are compared by identity (e.g., as keys of identity maps), so only one is created per node, even when the
+    // AST is read from several threads
+    private final AtomicReferenceArray<CompactJmmNode> views;
+
+    // Attributes put after the AST was built, for the few nodes that have them. Analysis passes can run in parallel
+    // over the same AST, so they may be put from several threads
+    private final Map<Integer, Map<String, Object>> addedAttributes = new ConcurrentHashMap<>();
+
+    private CompactAst(int size, int numAttributes) {
+        this.size = size;
+        this.kinds = new int[size];
+        this.parents = new int[size];
+        this.firstChildren = new int[size];
+        this.nextSiblings = new int[size];
+        Arrays.fill(nextSiblings, NONE);
+        this.numChildren = new int[size];
+        this.subtreeEnds = new int[size];
+        this.positions = new int[size * POSITION_KEYS.length];
+        this.attributeStarts = new int[size + 1];
+        this.attributeKeys = new int[numAttributes];
+        this.attributeValues = new int[numAttributes];
+        this.hierarchies = new ArrayList<>();
+        for (int i = 0; i < Kind.values().length; i++) {
+            hierarchies.add(null);
+        }
+        this.views = new AtomicReferenceArray<>(size);
+    }
+
+    /**
+     * Copies an AST, such as the one produced by the parser, into a compact AST. The given AST can be discarded
+     * afterwards, but is still fully in memory while it is copied.
+     *
+     * @param root
+     * @return
+     */
+    public static CompactAst from(JmmNode root) {
+        // Number the nodes in preorder, so attributes that refer to nodes can be stored as indexes
+        List<JmmNode> nodes = new ArrayList<>();
+        Map<JmmNode, Integer> indexes = new IdentityHashMap<>();
+        var numAttributes = 0;
+
+        Deque<JmmNode> pending = new ArrayDeque<>();
+        pending.push(root);
+        while (!pending.isEmpty()) {
+            var node = pending.pop();
+            indexes.put(node, nodes.size());
+            nodes.add(node);
+
+            for (var key : node.getAttributes()) {
+                if (getPositionIndex(key) == NONE) {
+                    numAttributes++;
+                }
+            }
+
+            var children = node.getChildren();
+            for (int i = children.size() - 1; i >= 0; i--) {
+                pending.push(children.get(i));
+            }
+        }
+
+        var ast = new CompactAst(nodes.size(), numAttributes);
+        var builder = new Builder(ast, indexes);
+        nodes.forEach(builder::add);
+        ast.attributeStarts[ast.size] = builder.nextAttribute;
+
+        // Children come after their parents, so subtrees can be closed from the last node up
+        for (int node = ast.size - 1; node >= 0; node--) {
+            var lastChild = NONE;
+            for (int child = ast.firstChildren[node]; child != NONE; child = ast.nextSiblings[child]) {
+                lastChild = child;
+            }
+            ast.subtreeEnds[node] = lastChild == NONE ? node + 1 : ast.subtreeEnds[lastChild];
+        }
+
+        return ast;
+    }
+
+    private static class Builder {
+
+        private final CompactAst ast;
+        private final Map<JmmNode, Integer> indexes;
+        private final Map<String, Integer> keys = new HashMap<>();
+        private final Map<Object, Integer> values = new HashMap<>();
+        private int nextAttribute = 0;
+
+        private Builder(CompactAst ast, Map<JmmNode, Integer> indexes) {
+            this.ast = ast;
+            this.indexes = indexes;
+        }
+
+        private void add(JmmNode node) {
+            int index = indexes.get(node);
+            var kind = Kind.fromString(node.getKind());
+
+            ast.kinds[index] = kind.ordinal();
+            ast.parents[index] = node.getParent() == null ? NONE : indexes.getOrDefault(node.getParent(), NONE);
+            ast.numChildren[index] = node.getNumChildren();
+            if (ast.hierarchies.get(kind.ordinal()) == null) {
+                ast.hierarchies.set(kind.ordinal(), List.copyOf(node.getHierarchy()));
+            }
+
+            ast.attributeStarts[index] = nextAttribute;
+            for (var key : node.getAttributes()) {
+                var position = getPositionIndex(key);
+                if (position != NONE) {
+                    ast.positions[index * POSITION_KEYS.length + position] = Integer.parseInt(node.get(key));
+                    continue;
+                }
+
+                var value = node.getObject(key);
+                if (value instanceof JmmNode valueNode) {
+                    value = new NodeRef(indexes.get(valueNode));
+                }
+
+                ast.attributeKeys[nextAttribute] = intern(keys, ast.keyPool, key);
+                ast.attributeValues[nextAttribute] = intern(values, ast.valuePool, value);
+                nextAttribute++;
+            }
+
+            var previous = NONE;
+            ast.firstChildren[index] = NONE;
+            for (var child : node.getChildren()) {
+                int childIndex = indexes.get(child);
+                if (previous == NONE) {
+                    ast.firstChildren[index] = childIndex;
+                } else {
+                    ast.nextSiblings[previous] = childIndex;
+                }
+                previous = childIndex;
+            }
+        }
+
+        private static <T> int intern(Map<T, Integer> interned, List<? super T> pool, T value) {
+            return interned.computeIfAbsent(value, key -> {
+                pool.add(value);
+                return pool.size() - 1;
+            });
+        }
+    }
+
+    private static int getPositionIndex(String key) {
+        for (int i = 0; i < POSITION_KEYS.length; i++) {
+            if (POSITION_KEYS[i].equals(key)) {
+                return i;
+            }
+        }
+        return NONE;
+    }
+
+    /**
+     * @return the root of the AST
+     */
+    public JmmNode getRoot() {
+        return getNode(0);
+    }
+
+    /**
+     * @return the number of nodes of the AST
+     */
+    public int size() {
+        return size;
+    }
+
+    CompactJmmNode getNode(int index) {
+        if (index == NONE) {
+            return null;
+        }
+
+        var view = views.get(index);
+        if (view == null) {
+            var created = new CompactJmmNode(this, index);
+            view = views.compareAndExchange(index, null, created);
+            if (view == null) {
+                view = created;
+            }
+        }
+
+        return view;
+    }
+
+    Kind getKind(int node) {
+        return Kind.values()[kinds[node]];
+    }
+
+    Collection<String> getHierarchy(int node) {
+        return hierarchies.get(kinds[node]);
+    }
+
+    CompactJmmNode getParent(int node) {
+        return getNode(parents[node]);
+    }
+
+    int getNumChildren(int node) {
+        return numChildren[node];
+    }
+
+    List<JmmNode> getChildren(int node) {
+        var children = new ArrayList<JmmNode>(numChildren[node]);
+        for (int child = firstChildren[node]; child != NONE; child = nextSiblings[child]) {
+            children.add(getNode(child));
+        }
+        return children;
+    }
+
+    CompactJmmNode getChild(int node, int index) {
+        var child = firstChildren[node];
+        for (int i = 0; i < index && child != NONE; i++) {
+            child = nextSiblings[child];
+        }
+
+        if (child == NONE) {
+            throw new IndexOutOfBoundsException("Node has " + numChildren[node] + " children, asked for " + index);
+        }
+
+        return getNode(child);
+    }
+
+    int getSubtreeEnd(int node) {
+        return subtreeEnds[node];
+    }
+
+    List<String> getAttributes(int node) {
+        var attributes = getAttributesWithoutPosition(node);
+        attributes.addAll(List.of(POSITION_KEYS));
+        return attributes;
+    }
+
+    List<String> getAttributesWithoutPosition(int node) {
+        var attributes = new ArrayList<String>();
+        for (int i = attributeStarts[node]; i < attributeStarts[node + 1]; i++) {
+            attributes.add(keyPool.get(attributeKeys[i]));
+        }
+        for (var key : addedAttributes.getOrDefault(node, Map.of()).keySet()) {
+            if (!attributes.contains(key)) {
+                attributes.add(key);
+            }
+        }
+        return attributes;
+    }
+
+    Object getAttribute(int node, String key) {
+        var added = addedAttributes.get(node);
+        if (added != null && added.containsKey(key)) {
+            return added.get(key);
+        }
+
+        var position = getPositionIndex(key);
+        if (position != NONE) {
+            return Integer.toString(positions[node * POSITION_KEYS.length + position]);
+        }
+
+        for (int i = attributeStarts[node]; i < attributeStarts[node + 1]; i++) {
+            if (keyPool.get(attributeKeys[i]).equals(key)) {
+                var value = valuePool.get(attributeValues[i]);
+                return value instanceof NodeRef ref ? getNode(ref.index()) : value;
+            }
+        }
+
+        return null;
+    }
+
+    Object putAttribute(int node, String key, Object value) {
+        var previous = getAttribute(node, key);
+        addedAttributes.computeIfAbsent(node, n -> new ConcurrentHashMap<>()).put(key, value);
+        return previous;
+    }
+
+    /**
+     * Attribute value that refers to another node of the AST.
+     */
+    private record NodeRef(int index) {
+    }
+}
@@ -0,0 +1,182 @@
+package pt.up.fe.comp2024.ast;
+
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp.jmm.ast.JmmNodeImpl;
+import pt.up.fe.specs.util.SpecsCheck;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * View of a node of a {@link CompactAst}.
+ * <p>
+ * Attributes can be added, but the structure of the tree cannot be changed; {@link #copy()} returns a regular
+ * {@link JmmNodeImpl} tree that can.
+ */
+public class CompactJmmNode implements JmmNode {
+
+    private final CompactAst ast;
+    private final int index;
+
+    CompactJmmNode(CompactAst ast, int index) {
+        this.ast = ast;
+        this.index = index;
+    }
+
+    /**
+     * @return the kind of the node, without going through its name
+     */
+    public Kind getKindEnum() {
+        return ast.getKind(index);
+    }
+
+    @Override
+    public String getKind() {
+        return ast.getKind(index).getNodeName();
+    }
+
+    @Override
+    public Collection<String> getHierarchy() {
+        return ast.getHierarchy(index);
+    }
+
+    @Override
+    public Collection<String> getAttributes() {
+        return ast.getAttributes(index);
+    }
+
+    @Override
+    public Object getObject(String attribute) {
+        var value = ast.getAttribute(index, attribute);
+
+        SpecsCheck.checkNotNull(value, () -> "Node " + getKind() + " does not contain attribute '" + attribute + "'");
+
+        return value;
+    }
+
+    @Override
+    public boolean hasAttribute(String attribute) {
+        return ast.getAttribute(index, attribute) != null;
+    }
+
+    @Override
+    public Object putObject(String attribute, Object value) {
+        return ast.putAttribute(index, attribute, value);
+    }
+
+    @Override
+    public JmmNode getParent() {
+        return ast.getParent(index);
+    }
+
+    @Deprecated
+    @Override
+    public JmmNode getJmmParent() {
+        return getParent();
+    }
+
+    @Override
+    public List<JmmNode> getChildren() {
+        return ast.getChildren(index);
+    }
+
+    @Override
+    public int getNumChildren() {
+        return ast.getNumChildren(index);
+    }
+
+    @Override
+    public JmmNode getJmmChild(int index) {
+        return ast.getChild(this.index, index);
+    }
+
+    @Override
+    public JmmNode getChild(int index) {
+        return ast.getChild(this.index, index);
+    }
+
+    @Override
+    public Stream<JmmNode> getDescendantsStream() {
+        // Descendants are stored right after the node, in preorder
+        return IntStream.range(index + 1, ast.getSubtreeEnd(index)).mapToObj(ast::getNode);
+    }
+
+    @Override
+    public Stream<JmmNode> getDescendantsAndSelfStream() {
+        return IntStream.range(index, ast.getSubtreeEnd(index)).mapToObj(ast::getNode);
+    }
+
+    @Override
+    public JmmNode copyNode() {
+        var copy = new JmmNodeImpl(getKind());
+        copy.setHierarchy(getHierarchy());
+        for (var attribute : getAttributes()) {
+            copy.putObject(attribute, getObject(attribute));
+        }
+        return copy;
+    }
+
+    @Override
+    public void add(JmmNode child, int index) {
+        throw immutable();
+    }
+
+    @Override
+    public void setChild(JmmNode newNode, int index) {
+        throw immutable();
+    }
+
+    @Override
+    public JmmNode removeJmmChild(int index) {
+        throw immutable();
+    }
+
+    @Override
+    public int removeChild(JmmNode node) {
+        throw immutable();
+    }
+
+    @Deprecated
+    @Override
+    public int removeJmmChild(JmmNode node) {
+        throw immutable();
+    }
+
+    @Override
+    public JmmNode detach() {
+        throw immutable();
+    }
+
+    @Override
+    public void removeParent() {
+        throw immutable();
+    }
+
+    @Override
+    public void setParent(JmmNode parent) {
+        throw immutable();
+    }
+
+    private static UnsupportedOperationException immutable() {
+        return new UnsupportedOperationException("The structure of a compact AST cannot be changed, use copy()");
+    }
+
+    @Override
+    public String toString() {
+        var attributes = ast.getAttributesWithoutPosition(index);
+        if (attributes.isEmpty()) {
+            return getKind();
+        }
+
+        var string = new StringBuilder(getKind()).append(" (");
+        for (int i = 0; i < attributes.size(); i++) {
+            if (i > 0) {
+                string.append(", ");
+            }
+            string.append(attributes.get(i)).append(": ").append(get(attributes.get(i)));
+        }
+        return string.append(")").toString();
+    }
+}
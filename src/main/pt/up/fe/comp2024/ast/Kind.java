@@ -4,6 +4,8 @@ import pt.up.fe.comp.jmm.ast.JmmNode;
 import pt.up.fe.specs.util.SpecsStrings;
 
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Set;
 
 public enum Kind {
@@ -41,6 +43,14 @@ public enum Kind {
             BINARY_EXPR, ARRAY_ACCESS_EXPR, LENGTH_EXPR, METHOD_CALL_EXPR, NEW_ARRAY_SIZE_EXPR, NEW_CLASS_EXPR,
             UNARY_OP_EXPR, PAREN_EXPR, NEW_ARRAY_EXPR, INTEGER_LITERAL, BOOLEAN_LITERAL, VAR_REF_EXPR);
 
+    private static final Map<String, Kind> BY_NAME = new HashMap<>();
+
+    static {
+        for (var kind : values()) {
+            BY_NAME.put(kind.getNodeName(), kind);
+        }
+    }
+
     private final String name;
 
     private Kind(String name) {
@@ -53,12 +63,40 @@ public enum Kind {
 
     public static Kind fromString(String kind) {
 
-        for (Kind k : Kind.values()) {
-            if (k.getNodeName().equals(kind)) {
-                return k;
-            }
+        var k = BY_NAME.get(kind);
+        if (k == null) {
+            throw new RuntimeException("Could not convert string '" + kind + "' to a Kind");
         }
-        throw new RuntimeException("Could not convert string '" + kind + "' to a Kind");
+        return k;
+    }
+
+    /**
+     * @param kind
+     * @return the Kind with the given node name, or null if there is none (e.g. 'Expr')
+     */
+    public static Kind fromNodeName(String kind) {
+        return BY_NAME.get(kind);
+    }
+
+    /**
+     * Kind of a node, read directly from compact ASTs.
+     *
+     * @param node
+     * @return the Kind of the node, or null if it is not one of the kinds of the grammar
+     */
+    public static Kind of(JmmNode node) {
+        if (node instanceof CompactJmmNode compactNode) {
+            return compactNode.getKindEnum();
+        }
+
+        return BY_NAME.get(node.getKind());
+    }
+
+    /**
+     * @return an integer that identifies this kind, between 0 and the number of kinds
+     */
+    public int getId() {
+        return ordinal();
     }
 
     public String getNodeName() {
@@ -91,7 +129,7 @@ public enum Kind {
      * @return
      */
     public boolean check(JmmNode node) {
-        return node.getKind().equals(getNodeName());
+        return of(node) == this;
     }
 
     /**
@@ -0,0 +1,40 @@
+package pt.up.fe.comp2024.ast;
+
+import pt.up.fe.comp.jmm.ast.JmmNode;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.BiFunction;
+
+/**
+ * Visit methods indexed by {@link Kind#getId()}, so finding the visit of a node is an array access instead of a
+ * lookup by the name of its kind.
+ */
+class KindVisitTable<D, R> {
+
+    // A list of a fixed size, since arrays of a generic type cannot be created
+    private final List<BiFunction<JmmNode, D, R>> visits;
+
+    KindVisitTable() {
+        visits = new ArrayList<>(Collections.nCopies(Kind.values().length, null));
+    }
+
+    /**
+     * Registers a visit, if the given kind is one of the kinds of the grammar.
+     */
+    void put(String kind, BiFunction<JmmNode, D, R> method) {
+        var k = Kind.fromNodeName(kind);
+        if (k != null) {
+            visits.set(k.getId(), method);
+        }
+    }
+
+    /**
+     * @return the visit registered for the kind of the node, or null if there is none
+     */
+    BiFunction<JmmNode, D, R> get(JmmNode node) {
+        var kind = Kind.of(node);
+        return kind == null ? null : visits.get(kind.getId());
+    }
+}
@@ -0,0 +1,32 @@
+package pt.up.fe.comp2024.ast;
+
+import pt.up.fe.comp.jmm.ast.AJmmVisitor;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+
+import java.util.function.BiFunction;
+
+/**
+ * {@link AJmmVisitor} that finds the visit of a node through its {@link Kind} id. Visits added for kinds that are not
+ * in {@link Kind} (e.g. 'Expr') are still found through the hierarchy of the node.
+ */
+public abstract class KindVisitor<D, R> extends AJmmVisitor<D, R> {
+
+    // Not initialized in the declaration, since buildVisitor() runs in the constructor of the superclass
+    private KindVisitTable<D, R> visits;
+
+    @Override
+    public void addVisit(String kind, BiFunction<JmmNode, D, R> method) {
+        if (visits == null) {
+            visits = new KindVisitTable<>();
+        }
+
+        visits.put(kind, method);
+        super.addVisit(kind, method);
+    }
+
+    @Override
+    protected BiFunction<JmmNode, D, R> getVisit(JmmNode node) {
+        var visit = visits == null ? null : visits.get(node);
+        return visit != null ? visit : super.getVisit(node);
+    }
+}
@@ -0,0 +1,49 @@
+package pt.up.fe.comp2024.ast;
+
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp.jmm.ast.PreorderJmmVisitor;
+import pt.up.fe.specs.util.SpecsCheck;
+
+import java.util.function.BiFunction;
+
+/**
+ * {@link PreorderJmmVisitor} that finds the visit of a node through its {@link Kind} id, like {@link KindVisitor}.
+ */
+public abstract class PreorderKindVisitor<D, R> extends PreorderJmmVisitor<D, R> {
+
+    // Not initialized in the declaration, since buildVisitor() runs in the constructor of the superclass
+    private KindVisitTable<D, R> visits;
+
+    @Override
+    public void addVisit(String kind, BiFunction<JmmNode, D, R> method) {
+        if (visits == null) {
+            visits = new KindVisitTable<>();
+        }
+
+        visits.put(kind, method);
+        super.addVisit(kind, method);
+    }
+
+    @Override
+    protected BiFunction<JmmNode, D, R> getVisit(JmmNode node) {
+        var visit = visits == null ? null : visits.get(node);
+        return visit != null ? visit : super.getVisit(node);
+    }
+
+    @Override
+    public R visit(JmmNode jmmNode, D data) {
+        // Without a reduce function the results of the children are discarded, so they are not collected
+        if (getReduce() != null) {
+            return super.visit(jmmNode, data);
+        }
+
+        SpecsCheck.checkNotNull(jmmNode, () -> "Node should not be null");
+
+        var nodeResult = getVisit(jmmNode).apply(jmmNode, data);
+        for (var child : jmmNode.getChildren()) {
+            visit(child, data);
+        }
+
+        return nodeResult;
+    }
+}
@@ -3,6 +3,14 @@ package pt.up.fe.comp2024.ast;
 import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
 import pt.up.fe.comp.jmm.analysis.table.Type;
 import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp2024.symboltable.JmmSymbolTable;
+import pt.up.fe.comp2024.symboltable.MethodSignature;
+import pt.up.fe.comp2024.symboltable.SymbolBinder;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class TypeUtils {
 
@@ -11,6 +19,22 @@ public class TypeUtils {
     private static final String BOOLEAN_TYPE_NAME = "boolean";
     private static final String IMPORTED_TYPE_NAME = "IMPORTED_TYPE";
 
+    // Canonical instances of the types, shared by every expression and symbol instead of allocating a type for each
+    private static final Type INT_TYPE = new Type(INT_TYPE_NAME, false);
+    private static final Type INT_ARRAY_TYPE = new Type(INT_TYPE_NAME, true);
+    private static final Type INT_SEQ_TYPE = new Type(INT_SEQ_TYPE_NAME, false);
+    private static final Type BOOLEAN_TYPE = new Type(BOOLEAN_TYPE_NAME, false);
+    private static final Type IMPORTED_TYPE = new Type(IMPORTED_TYPE_NAME, false);
+
+    private static final Map<String, Type> TYPES = new ConcurrentHashMap<>();
+    private static final Map<String, Type> ARRAY_TYPES = new ConcurrentHashMap<>();
+
+    static {
+        for (var type : List.of(INT_TYPE, INT_ARRAY_TYPE, INT_SEQ_TYPE, BOOLEAN_TYPE, IMPORTED_TYPE)) {
+            (type.isArray() ? ARRAY_TYPES : TYPES).put(type.getName(), type);
+        }
+    }
+
 
     public static String getIntTypeName() {
         return INT_TYPE_NAME;
@@ -25,6 +49,37 @@ public class TypeUtils {
         return IMPORTED_TYPE_NAME;
     }
 
+    public static Type getIntType() {
+        return INT_TYPE;
+    }
+
+    public static Type getIntArrayType() {
+        return INT_ARRAY_TYPE;
+    }
+
+    public static Type getIntSeqType() {
+        return INT_SEQ_TYPE;
+    }
+
+    public static Type getBooleanType() {
+        return BOOLEAN_TYPE;
+    }
+
+    public static Type getImportedType() {
+        return IMPORTED_TYPE;
+    }
+
+    /**
+     * Types are interned, so equal types are the same instance and can be compared by identity.
+     *
+     * @param name
+     * @param isArray
+     * @return the canonical instance of the type
+     */
+    public static Type getType(String name, boolean isArray) {
+        return (isArray ? ARRAY_TYPES : TYPES).computeIfAbsent(name, typeName -> new Type(typeName, isArray));
+    }
+
     /**
      * Gets the {@link Type} of an arbitrary expression.
      *
@@ -33,24 +88,65 @@ public class TypeUtils {
      * @return
      */
     public static Type getExprType(JmmNode expr, SymbolTable table) {
+        // Types stored by annotateTypes are not computed again
+        if (table instanceof JmmSymbolTable jmmTable) {
+            var type = jmmTable.getExprType(expr);
+            if (type != null)
+                return type;
+        }
+
+        return computeExprType(expr, table);
+    }
+
+    /**
+     * Computes the type of every expression of the AST once, and stores it in the symbol table, where
+     * {@link #getExprType(JmmNode, SymbolTable)} finds it. Children are computed before their parents, so expressions
+     * whose type is the type of a child get it from the table.
+     *
+     * @param root
+     * @param table
+     */
+    public static void annotateTypes(JmmNode root, SymbolTable table) {
+        if (!(table instanceof JmmSymbolTable jmmTable))
+            return;
+
+        // In preorder, the descendants of a node come after it
+        var nodes = root.getDescendants();
+        for (int i = nodes.size() - 1; i >= 0; i--) {
+            var node = nodes.get(i);
+            var kind = Kind.of(node);
+            if (!kind.isExpr() && kind != Kind.THIS_EXPR)
+                continue;
+
+            try {
+                var type = computeExprType(node, table);
+                if (type != null)
+                    jmmTable.putExprType(node, type);
+            } catch (RuntimeException e) {
+                // Left to be computed, and reported, by the pass that asks for it
+            }
+        }
+    }
+
+    private static Type computeExprType(JmmNode expr, SymbolTable table) {
         // TODO: Simple implementation that needs to be expanded
 
-        var kind = Kind.fromString(expr.getKind());
+        var kind = Kind.of(expr);
 
         Type type = switch (kind) {
             case BINARY_EXPR -> getBinExprType(expr);
-            case ARRAY_ACCESS_EXPR-> new Type(INT_TYPE_NAME, false);
-            case LENGTH_EXPR-> new Type(INT_TYPE_NAME, false);
+            case ARRAY_ACCESS_EXPR-> INT_TYPE;
+            case LENGTH_EXPR-> INT_TYPE;
             case METHOD_CALL_EXPR -> getMethodCallType(expr, table);
-            case NEW_ARRAY_SIZE_EXPR-> new Type(INT_TYPE_NAME, true);
-            case NEW_CLASS_EXPR-> new Type(expr.get("name"), false);
+            case NEW_ARRAY_SIZE_EXPR-> INT_ARRAY_TYPE;
+            case NEW_CLASS_EXPR-> getType(expr.get("name"), false);
             case UNARY_OP_EXPR-> getExprType(expr.getJmmChild(0), table);
             case PAREN_EXPR-> getExprType(expr.getJmmChild(0), table);
-            case NEW_ARRAY_EXPR-> new Type(INT_TYPE_NAME, true);
-            case INTEGER_LITERAL-> new Type(INT_TYPE_NAME, false);
-            case BOOLEAN_LITERAL-> new Type(BOOLEAN_TYPE_NAME, false);
+            case NEW_ARRAY_EXPR-> INT_ARRAY_TYPE;
+            case INTEGER_LITERAL-> INT_TYPE;
+            case BOOLEAN_LITERAL-> BOOLEAN_TYPE;
             case VAR_REF_EXPR -> getVarExprType(expr, table);
-            case THIS_EXPR -> new Type(table.getClassName(), false);
+            case THIS_EXPR -> getType(table.getClassName(), false);
             default -> throw new UnsupportedOperationException("Can't compute type for expression kind '" + kind + "'");
         };
 
@@ -63,8 +159,8 @@ public class TypeUtils {
         String operator = binaryExpr.get("op");
 
         return switch (operator) {
-            case "+", "*", "-", "/" -> new Type(INT_TYPE_NAME, false);
-            case "<", ">", "<=", ">=", "&&", "||" -> new Type(BOOLEAN_TYPE_NAME, false);
+            case "+", "*", "-", "/" -> INT_TYPE;
+            case "<", ">", "<=", ">=", "&&", "||" -> BOOLEAN_TYPE;
             default ->
                     throw new RuntimeException("Unknown operator '" + operator + "' of expression '" + binaryExpr + "'");
         };
@@ -73,43 +169,69 @@ public class TypeUtils {
 
     private static Type getVarExprType(JmmNode varRefExpr, SymbolTable table) {
         // TODO: Simple implementation that needs to be expanded
+        var binding = SymbolBinder.getBinding(varRefExpr, table);
+        if (binding.isPresent())
+            return binding.get().symbol().getType();
+
         var parentOpt = varRefExpr.getAncestor(Kind.METHOD_DECL);
         if(parentOpt.isEmpty())
             parentOpt = varRefExpr.getAncestor(Kind.CLASS_DECL);
 
         if(parentOpt.isEmpty())
-            return new Type(varRefExpr.get("name"), false);
+            return getType(varRefExpr.get("name"), false);
 
         var parentNode = parentOpt.get();
+        var method = parentNode.isInstance(Kind.METHOD_DECL) ? parentNode.get("name") : null;
 
-        if (parentNode.isInstance(Kind.METHOD_DECL)) {
-            for(var i : table.getLocalVariables(parentNode.get("name"))){
-                if(i.getName().equals(varRefExpr.get("name")))
-                    return i.getType();
-            }
-            for(var i : table.getParameters(parentNode.get("name"))){
-                if(i.getName().equals(varRefExpr.get("name")))
-                    return i.getType();
-            }
-        }
-
-        for(var i : table.getFields()){
-            if(i.getName().equals(varRefExpr.get("name")))
-                return i.getType();
-        }
-
-        for(var i : table.getImports())
-            if(i.equals(varRefExpr.get("name")))
-                return new Type(i, false);
-        return null;
+        return JmmSymbolTable.of(table).resolve(method, varRefExpr.get("name"))
+                .map(resolved -> resolved.symbol().getType())
+                .orElse(null);
     }
 
 
     private static Type getMethodCallType(JmmNode methodCallType, SymbolTable table) {
         // TODO: Simple implementation that needs to be expanded
+        var importedMethod = getImportedMethod(methodCallType, table);
+        if (importedMethod.isPresent())
+            return importedMethod.get().returnType();
+
         return table.getReturnType(methodCallType.get("name"));
     }
 
+    /**
+     * Finds the method called in the symbol table of an imported class, when the callee is an instance or the name of
+     * the class, or the class inherits the method from it.
+     *
+     * @param methodCallExpr
+     * @param table
+     * @return the method called, if it belongs to an imported class whose symbol table was found
+     */
+    public static Optional<MethodSignature> getImportedMethod(JmmNode methodCallExpr, SymbolTable table) {
+        if (!(table instanceof JmmSymbolTable jmmTable))
+            return Optional.empty();
+
+        var methodName = methodCallExpr.get("name");
+        var calleeType = getExprType(methodCallExpr.getJmmChild(0), table);
+        if (calleeType == null || calleeType.isArray())
+            return Optional.empty();
+
+        var className = calleeType.getName();
+        if (className.equals(table.getClassName())) {
+            if (jmmTable.hasMethod(methodName))
+                return Optional.empty();
+            className = table.getSuper();
+        }
+
+        // Of overloaded methods, the first with as many parameters as there are arguments
+        var argumentCount = methodCallExpr.getNumChildren() - 1;
+        return jmmTable.getImportedTable(className)
+                .map(imported -> imported.getMethodSignatures(methodName))
+                .flatMap(methods -> methods.stream()
+                        .filter(method -> method.parameterTypes().size() == argumentCount)
+                        .findFirst()
+                        .or(() -> methods.stream().findFirst()));
+    }
+
 
     /**
      * @param sourceType
@@ -120,6 +242,8 @@ public class TypeUtils {
         // TODO: Simple implementation that needs to be expanded
         // If same return true
         // If destinationType extends sourceType return true
+        if (sourceType == destinationType)
+            return true;
         return sourceType.getName().equals(destinationType.getName());
     }
 }
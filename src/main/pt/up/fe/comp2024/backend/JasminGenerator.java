@@ -5,14 +5,19 @@ import org.specs.comp.ollir.*;
 import org.specs.comp.ollir.tree.TreeNode;
 import pt.up.fe.comp.jmm.ollir.OllirResult;
 import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp2024.CompilerConfig;
 import pt.up.fe.specs.util.classmap.FunctionClassMap;
 import pt.up.fe.specs.util.exceptions.NotImplementedException;
 import pt.up.fe.specs.util.utilities.StringLines;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 /**
  * Generates Jasmin code from an OllirResult.
@@ -42,8 +47,16 @@ public class JasminGenerator {
 
     private final FunctionClassMap<TreeNode, String> generators;
 
+    // Descriptors of the methods of the class, by name, computed once for the whole class
+    private final Map<String, String> descriptors;
+
     public JasminGenerator(OllirResult ollirResult) {
+        this(ollirResult, buildDescriptors(ollirResult.getOllirClass()));
+    }
+
+    private JasminGenerator(OllirResult ollirResult, Map<String, String> descriptors) {
         this.ollirResult = ollirResult;
+        this.descriptors = descriptors;
 
         reports = new ArrayList<>();
         code = null;
@@ -112,17 +125,28 @@ public class JasminGenerator {
 
 
         // generate code for all other methods
-        for (var method : ollirResult.getOllirClass().getMethods()) {
-
-            // Ignore constructor, since there is always one constructor
-            // that receives no arguments, and has been already added
-            // previously
-            if (method.isConstructMethod()) {
-                continue;
-            }
-
-            code.append(generators.apply(method));
+        // Ignore constructor, since there is always one constructor
+        // that receives no arguments, and has been already added
+        // previously
+        var methods = ollirResult.getOllirClass().getMethods().stream()
+                .filter(method -> !method.isConstructMethod())
+                .toList();
+
+        // Each method is generated by its own generator, with its own current method and labels, so methods share no
+        // state and can be generated in parallel
+        var methodGenerators = methods.stream()
+                .map(method -> new JasminGenerator(ollirResult, descriptors))
+                .toList();
+        var indexes = IntStream.range(0, methods.size());
+        if (CompilerConfig.getParallel(ollirResult.getConfig())) {
+            indexes = indexes.parallel();
         }
+        var methodCode = indexes
+                .mapToObj(i -> methodGenerators.get(i).generators.apply(methods.get(i)))
+                .toList();
+
+        methodCode.forEach(code::append);
+        methodGenerators.forEach(generator -> reports.addAll(generator.getReports()));
 
         code.append(defaultConstructor);
 
@@ -152,13 +176,7 @@ public class JasminGenerator {
         if(!NonAccessModifier.NONE.equals(modifierStatic))
             code.append(modifierStatic.name().toLowerCase()).append(" ");
         code.append(methodName);
-
-        code.append("(");
-        for (var element : method.getParams())
-            code.append(typeCode(element.getType()));
-
-        code.append(")");
-        code.append(typeCode(method.getReturnType()));
+        code.append(descriptors.containsKey(methodName) ? descriptors.get(methodName) : getDescriptor(method));
         code.append(NL);
 
         // Calculate limits
@@ -169,6 +187,10 @@ public class JasminGenerator {
         code.append(TAB).append(".limit locals ").append(localsLimit).append(NL);
 
         for (var inst : method.getInstructions()) {
+            // labels that are targets of gotos and branches (e.g. loops)
+            for (var label : method.getLabels(inst))
+                code.append(label).append(":").append(NL);
+
             var instCode = StringLines.getLines(generators.apply(inst)).stream()
                     .collect(Collectors.joining(NL + TAB, TAB, NL));
 
@@ -187,6 +209,55 @@ public class JasminGenerator {
         return code.toString();
     }
 
+    /**
+     * Computes the descriptors of the methods of a class. Overloaded methods are left out, since their name does not
+     * identify them.
+     *
+     * @param classUnit
+     * @return
+     */
+    private static Map<String, String> buildDescriptors(ClassUnit classUnit) {
+        Map<String, String> descriptors = new HashMap<>();
+        Set<String> overloaded = new HashSet<>();
+
+        for (var method : classUnit.getMethods()) {
+            if (method.isConstructMethod()) {
+                continue;
+            }
+
+            if (descriptors.putIfAbsent(method.getMethodName(), getDescriptor(method)) != null) {
+                overloaded.add(method.getMethodName());
+            }
+        }
+
+        overloaded.forEach(descriptors::remove);
+        return descriptors;
+    }
+
+    private static String getDescriptor(Method method) {
+        var descriptor = new StringBuilder("(");
+        for (var element : method.getParams())
+            descriptor.append(typeCode(element.getType()));
+
+        return descriptor.append(")").append(typeCode(method.getReturnType())).toString();
+    }
+
+    /**
+     * @return the descriptor of the called method, which is computed once for the methods of the class, and from the
+     * arguments of the call for other methods
+     */
+    private String getCallDescriptor(CallInstruction callInstruction, String className, String methodName) {
+        if (className.equals(ollirResult.getOllirClass().getClassName()) && descriptors.containsKey(methodName)) {
+            return descriptors.get(methodName);
+        }
+
+        var descriptor = new StringBuilder("(");
+        for (var arg : callInstruction.getArguments())
+            descriptor.append(typeCode(arg.getType()));
+
+        return descriptor.append(")").append(typeCode(callInstruction.getReturnType())).toString();
+    }
+
     private int calculateLocalsLimit(Method method) {
         int maxLocal = 0;
         if (!method.isStaticMethod()) {
@@ -260,18 +331,55 @@ public class JasminGenerator {
 
     private int calculateStackLimit(Method method) {
         Pair<Integer,Integer> pair = new Pair<>(0,0);
+        int maxStack = 0;
         for(var instr : method.getInstructions()){
             pair = calculateStackLimitRec(pair, instr);
+            maxStack = Math.max(maxStack, calculateStackDepth(instr));
         }
-        return pair.a;
+        return Math.max(pair.a, maxStack);
+    }
+
+    /**
+     * Stack needed by a single instruction, taking into account array references and indexes that are kept on the
+     * stack by the array lowering.
+     */
+    private int calculateStackDepth(Instruction instruction) {
+        return switch (instruction.getInstType()) {
+            case ASSIGN -> {
+                var assign = (AssignInstruction) instruction;
+                if (!(assign.getDest() instanceof ArrayOperand)) {
+                    yield calculateStackDepth(assign.getRhs());
+                }
+                // a[i] = a[i] op x keeps a copy of reference and index, plus at most an array operand
+                if (isArrayUpdate(assign)) {
+                    yield 5;
+                }
+                // array reference and index stay below the value
+                yield 2 + calculateStackDepth(assign.getRhs());
+            }
+            case NOPER -> getElementStackDepth(((SingleOpInstruction) instruction).getSingleOperand());
+            case BINARYOPER -> {
+                var binaryOp = (BinaryOpInstruction) instruction;
+                if (sharesArrayReference(binaryOp)) {
+                    yield 3;
+                }
+                yield Math.max(getElementStackDepth(binaryOp.getLeftOperand()),
+                        1 + getElementStackDepth(binaryOp.getRightOperand()));
+            }
+            case UNARYOPER -> getElementStackDepth(((UnaryOpInstruction) instruction).getOperand());
+            case CALL -> 2 + ((CallInstruction) instruction).getArguments().size();
+            case RETURN, PUTFIELD, GETFIELD -> 2;
+            default -> 1;
+        };
+    }
+
+    private int getElementStackDepth(Element element) {
+        return element instanceof ArrayOperand ? 2 : 1;
     }
 
     private String generateAssign(AssignInstruction assign) {
         var code = new StringBuilder();
 
-        // generate code for loading what's on the right
-        code.append(generators.apply(assign.getRhs()));
-
         // store value in the stack in destination
         var lhs = assign.getDest();
 
@@ -279,14 +387,17 @@ public class JasminGenerator {
             throw new NotImplementedException(lhs.getClass());
         }
 
+        // array stores need the reference and index below the value, so they load the right side themselves
+        if(operand instanceof ArrayOperand arrayOperand) {
+            return generateArrayStore(arrayOperand, assign.getRhs());
+        }
+
+        // generate code for loading what's on the right
+        code.append(generators.apply(assign.getRhs()));
+
         // get register
         var reg = currentMethod.getVarTable().get(operand.getName()).getVirtualReg();
 
-        // TODO: Hardcoded for int type, needs to be expanded
-        if(operand instanceof ArrayOperand) {
-            return code.append("iastore").append(NL).toString();
-        }
-
         ElementType elemType = operand.getType().getTypeOfElement();
 
         String operation = STORE_OPERATIONS.get(elemType);
@@ -308,26 +419,170 @@ public class JasminGenerator {
     }
 
     private String generateOperand(Operand operand) {
+        if (operand instanceof ArrayOperand arrayOperand) {
+            return generateArrayReference(arrayOperand) + "iaload" + NL;
+        }
+
         // get register
         var reg = currentMethod.getVarTable().get(operand.getName()).getVirtualReg();
-        return "iload " + reg + NL;
+        var load = switch (operand.getType().getTypeOfElement()) {
+            case ARRAYREF, OBJECTREF, THIS, STRING -> "aload ";
+            default -> "iload ";
+        };
+        return load + reg + NL;
+    }
+
+    /**
+     * Loads the array reference and the index of an array access, leaving both on the stack.
+     */
+    private String generateArrayReference(ArrayOperand arrayOperand) {
+        var reg = currentMethod.getVarTable().get(arrayOperand.getName()).getVirtualReg();
+        return "aload " + reg + NL + generators.apply(arrayOperand.getIndexOperands().get(0));
+    }
+
+    /**
+     * Loads only the index of an array access, for when the array reference is already on the stack.
+     */
+    private String generateArrayIndex(ArrayOperand arrayOperand) {
+        return generators.apply(arrayOperand.getIndexOperands().get(0));
+    }
+
+    private String generateArrayStore(ArrayOperand dest, Instruction rhs) {
+        var code = new StringBuilder();
+
+        // array reference and index stay on the stack while the value is computed
+        code.append(generateArrayReference(dest));
+
+        if (rhs instanceof BinaryOpInstruction binaryOp && isArrayUpdate(dest, binaryOp)) {
+            // a[i] = a[i] op x: reuse the reference and index that are already loaded
+            var other = isSameArrayElement(dest, binaryOp.getLeftOperand()) ?
+                    binaryOp.getRightOperand() : binaryOp.getLeftOperand();
+
+            code.append("dup2").append(NL);
+            code.append("iaload").append(NL);
+            code.append(generators.apply(other));
+            code.append(getBinaryOperation(binaryOp)).append(NL);
+        } else {
+            code.append(generators.apply(rhs));
+        }
+
+        return code.append("iastore").append(NL).toString();
+    }
+
+    /**
+     * Array updates, e.g. a[i] = a[i] + 1, load the element through the reference and index of the store.
+     * <p>
+     * Reading the element only at the store is sound because instruction operands are always computed beforehand: the
+     * OLLIR generator spills array accesses whose later operands have side effects.
+     */
+    private boolean isArrayUpdate(AssignInstruction assign) {
+        return assign.getDest() instanceof ArrayOperand dest &&
+                assign.getRhs() instanceof BinaryOpInstruction binaryOp &&
+                isArrayUpdate(dest, binaryOp);
+    }
+
+    private boolean isArrayUpdate(ArrayOperand dest, BinaryOpInstruction binaryOp) {
+        if (isSameArrayElement(dest, binaryOp.getLeftOperand())) {
+            return true;
+        }
+
+        // only commutative operations can have the element on the right
+        var opType = binaryOp.getOperation().getOpType();
+        return (opType == OperationType.ADD || opType == OperationType.MUL) &&
+                isSameArrayElement(dest, binaryOp.getRightOperand());
+    }
+
+    private boolean isSameArrayElement(ArrayOperand arrayOperand, Element element) {
+        if (!(element instanceof ArrayOperand other) || !other.getName().equals(arrayOperand.getName())) {
+            return false;
+        }
+
+        var index = arrayOperand.getIndexOperands().get(0);
+        var otherIndex = other.getIndexOperands().get(0);
+
+        if (index instanceof LiteralElement literal && otherIndex instanceof LiteralElement otherLiteral) {
+            return literal.getLiteral().equals(otherLiteral.getLiteral());
+        }
+
+        return index instanceof Operand operand && !(index instanceof ArrayOperand) &&
+                otherIndex instanceof Operand otherOperand && !(otherIndex instanceof ArrayOperand) &&
+                operand.getName().equals(otherOperand.getName());
+    }
+
+    /**
+     * Binary operations where both operands are accesses to the same array, e.g. a[i] + a[j].
+     */
+    private boolean sharesArrayReference(BinaryOpInstruction binaryOp) {
+        return binaryOp.getLeftOperand() instanceof ArrayOperand left &&
+                binaryOp.getRightOperand() instanceof ArrayOperand right &&
+                left.getName().equals(right.getName());
     }
 
     private String generateBinaryOp(BinaryOpInstruction binaryOp) {
         var code = new StringBuilder();
 
         // load values on the left and on the right
-        code.append(generators.apply(binaryOp.getLeftOperand()));
-        code.append(generators.apply(binaryOp.getRightOperand()));
+        if (sharesArrayReference(binaryOp)) {
+            // load the array reference once, and keep a copy under the first element for the second access
+            var left = (ArrayOperand) binaryOp.getLeftOperand();
+            var right = (ArrayOperand) binaryOp.getRightOperand();
+
+            var reg = currentMethod.getVarTable().get(left.getName()).getVirtualReg();
+            code.append("aload ").append(reg).append(NL);
+            code.append("dup").append(NL);
+            code.append(generateArrayIndex(left));
+            code.append("iaload").append(NL);
+            code.append("swap").append(NL);
+            code.append(generateArrayIndex(right));
+            code.append("iaload").append(NL);
+        } else {
+            code.append(generators.apply(binaryOp.getLeftOperand()));
+            code.append(generators.apply(binaryOp.getRightOperand()));
+        }
 
         // apply operation
-        var op = switch (binaryOp.getOperation().getOpType()) {
+        var op = getBinaryOperation(binaryOp);
+
+        if (op != null && op.startsWith("if_icmp")) {
+            return code.append(generateComparisonResult(op)).toString();
+        }
+
+        return code.append(op).append(NL).toString();
+    }
+
+    /**
+     * Turns the result of a comparison into a boolean (0 or 1) on top of the stack.
+     */
+    private String generateComparisonResult(String compareOp) {
+        var code = new StringBuilder();
+
+        String labelTrue = getLabel();
+        String labelEnd = getLabel();
+
+        code.append(compareOp).append(" ").append(labelTrue).append(NL);
+
+        // False branch
+        code.append("iconst_0").append(NL);
+        code.append("goto ").append(labelEnd).append(NL);
+
+        // True branch
+        code.append(labelTrue).append(":").append(NL);
+        code.append("iconst_1").append(NL);
+
+        // End label
+        code.append(labelEnd).append(":").append(NL);
+
+        return code.toString();
+    }
+
+    private String getBinaryOperation(BinaryOpInstruction binaryOp) {
+        return switch (binaryOp.getOperation().getOpType()) {
             case ADD -> "iadd";
             case SUB -> "isub";
             case MUL -> "imul";
             case DIV -> "idiv";
-            case AND -> "iand";
-            case OR -> "ior";
+            case AND, ANDB -> "iand";
+            case OR, ORB -> "ior";
             case LTH -> "if_icmplt";
             case GTH -> "if_icmpgt";
             case EQ -> "if_icmpeq";
@@ -337,8 +592,6 @@ public class JasminGenerator {
             case NOT -> null;
             default -> throw new NotImplementedException(binaryOp.getOperation().getOpType());
         };
-
-        return code.append(op).append(NL).toString();
     }
 
     private String generateReturn(ReturnInstruction returnInst) {
@@ -429,6 +682,19 @@ public class JasminGenerator {
 
         StringBuilder code = new StringBuilder();
 
+        if (isNewArray(callInstruction)) {
+            // new(array, size): arrays are always allocated with their exact size
+            code.append(generators.apply(callInstruction.getArguments().get(0)));
+            code.append("newarray int").append(NL);
+            return code.toString();
+        }
+
+        if (callInstruction.getInvocationType() == CallType.arraylength) {
+            code.append(generators.apply(callInstruction.getCaller()));
+            code.append("arraylength").append(NL);
+            return code.toString();
+        }
+
         String type = callInstruction.getInvocationType().toString();
         String operands = callInstruction.getOperands().toString().split(" ")[1].split("\\.")[0];
         String name = Character.toUpperCase(operands.charAt(0)) + operands.substring(1);
@@ -461,40 +727,32 @@ public class JasminGenerator {
         } else */if(callInstruction.getInvocationType().toString().equals("invokevirtual")){
             //    invokevirtual mypackage/MyClass/foo(Ljava/lang/Object;[I)I
             var methodName = ((LiteralElement) callInstruction.getMethodName()).getLiteral().replaceAll("\"", "");
-            var returnType = new Type(callInstruction.getReturnType().getTypeOfElement());
-            var returnJasminType = typeCode(returnType);
+            var className = getCallClassName(callInstruction, operands);
+            // the object and the arguments (e.g. packed varargs arrays) go on the stack before the call
+            code.append(generators.apply(callInstruction.getCaller()));
+            for(var arg : callInstruction.getArguments())
+                code.append(generators.apply(arg));
             code.append("invokevirtual");
             code.append(SPACE);
-            code.append(operands);
+            code.append(className);
             code.append("/");
             code.append(methodName);
-            code.append("(");
-
-            for(var inst : callInstruction.getArguments())
-                code.append(typeCode(inst.getType()));
-
-            code.append(")");
-            code.append(returnJasminType);
+            code.append(getCallDescriptor(callInstruction, className, methodName));
             code.append(NL);
         }else if(callInstruction.getInvocationType().toString().equals("invokestatic")) {
             var methodName = ((LiteralElement) callInstruction.getMethodName()).getLiteral().replaceAll("\"", "");
-            var returnType = new Type(callInstruction.getReturnType().getTypeOfElement());
-            var returnJasminType = typeCode(returnType);
+            for(var arg : callInstruction.getArguments())
+                code.append(generators.apply(arg));
             code.append("invokestatic");
             code.append(SPACE);
             code.append(operands);
             code.append("/");
             code.append(methodName);
-            code.append("(");
-            var it = callInstruction.getArguments().iterator();
-            while(it.hasNext()) {
-                Element arg = it.next();
-                code.append(typeCode(arg.getType()));
-                if(it.hasNext())
-                    code.append(";");
-            }
-            code.append(")");
-            code.append(returnJasminType);
+            code.append(getCallDescriptor(callInstruction, operands, methodName));
+            code.append(NL);
+        }else if(callInstruction.getInvocationType() == CallType.invokespecial) {
+            code.append(generators.apply(callInstruction.getCaller()));
+            code.append(type).append(" ").append(getCallClassName(callInstruction, name)).append("/<init>()V").append(NL);
         }else{
             code.append(type).append(" ").append(name).append("/<init>()V").append(NL);
         }
@@ -502,6 +760,23 @@ public class JasminGenerator {
         return code.toString();
     }
 
+    private String getCallClassName(CallInstruction callInstruction, String operands) {
+        var callerType = callInstruction.getCaller().getType();
+        if (callerType.getTypeOfElement() == ElementType.THIS) {
+            return ollirResult.getOllirClass().getClassName();
+        }
+        if (callerType instanceof ClassType classType) {
+            return classType.getName();
+        }
+        return operands;
+    }
+
+    private boolean isNewArray(CallInstruction callInstruction) {
+        return callInstruction.getInvocationType() == CallType.NEW &&
+                callInstruction.getCaller() instanceof Operand caller &&
+                caller.getName().equals("array");
+    }
+
     public OllirResult getOllirResult() {
         return ollirResult;
     }
@@ -519,38 +794,24 @@ public class JasminGenerator {
         Element leftOperand = operands.get(0);
         Element rightOperand = operands.get(1);
 
-        String labelTrue = getLabel();
-        String labelEnd = getLabel();
-
         // Load left and right operands
         code.append(generators.apply(leftOperand));
         code.append(generators.apply(rightOperand));
 
-        // Generate conditional operation
-        String opInstruction;
+        // Jump to the branch label if the condition holds
         switch (condition.getOperation().getOpType()) {
-            case EQ -> opInstruction = "if_icmpeq";
-            case NEQ -> opInstruction = "if_icmpne";
-            case LTH -> opInstruction = "if_icmplt";
-            case GTH -> opInstruction = "if_icmpgt";
-            case LTE -> opInstruction = "if_icmple";
-            case GTE -> opInstruction = "if_icmpge";
+            case EQ -> code.append("if_icmpeq");
+            case NEQ -> code.append("if_icmpne");
+            case LTH -> code.append("if_icmplt");
+            case GTH -> code.append("if_icmpgt");
+            case LTE -> code.append("if_icmple");
+            case GTE -> code.append("if_icmpge");
+            case ANDB -> code.append("iand").append(NL).append("ifne");
+            case ORB -> code.append("ior").append(NL).append("ifne");
             default -> throw new NotImplementedException(condition.getOperation().getOpType());
         }
 
-        code.append(opInstruction).append(" ").append(labelTrue).append(NL);
-
-        // False branch
-        code.append("iconst_0").append(NL);
-        // Generate goto instruction
-        code.append("goto ").append(labelEnd).append(NL);
-
-        // True branch
-        code.append(labelTrue).append(":").append(NL);
-        code.append("iconst_1").append(NL);
-
-        // End label
-        code.append(labelEnd).append(":").append(NL);
+        code.append(" ").append(opCond.getLabel()).append(NL);
 
         return code.toString();
     }
@@ -563,6 +824,7 @@ public class JasminGenerator {
         return "Label" + labelCount++;
     }
 
+    // Labels are local to the method, so they are numbered from 0 in each method
     private int labelCount = 0;
 
     private String generateSingleOpCond(SingleOpCondInstruction singOpCond) {
@@ -571,25 +833,11 @@ public class JasminGenerator {
         // Assuming the condition is on a single boolean operand
         Element operand = singOpCond.getOperands().get(0);
 
-        String labelTrue = getLabel();
-        String labelEnd = getLabel();
-
         // Load the operand
-        code.append(generators.apply(operand)).append(NL);
-
-        // Check if the operand is true
-        code.append("ifne ").append(labelTrue).append(NL);
+        code.append(generators.apply(operand));
 
-        // False branch
-        code.append("iconst_0").append(NL);
-        code.append("goto ").append(labelEnd).append(NL);
-
-        // True branch
-        code.append(labelTrue).append(":").append(NL);
-        code.append("iconst_1").append(NL);
-
-        // End label
-        code.append(labelEnd).append(":").append(NL);
+        // Jump to the branch label if the operand is true
+        code.append("ifne ").append(singOpCond.getLabel()).append(NL);
 
         return code.toString();
     }
@@ -0,0 +1,61 @@
+package pt.up.fe.comp2024.callgraph;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Interprocedural analysis that computes a summary per method of the class, visiting callees before callers.
+ * <p>
+ * Mutually recursive methods (a strongly connected component of the call graph) start from {@link #initial(String)}
+ * and are recomputed until their summaries stop changing, so the summaries must form a finite lattice, and
+ * {@link #compute(String, Map)} must be monotone.
+ *
+ * @param <S> the type of the summary, which must implement equals
+ */
+public abstract class BottomUpAnalysis<S> {
+
+    /**
+     * Summary assumed for a method of a recursive component before it is first computed. Should be the most
+     * optimistic summary (e.g. pure, with a constant return).
+     *
+     * @param method
+     * @return
+     */
+    protected abstract S initial(String method);
+
+    /**
+     * Computes the summary of a method.
+     *
+     * @param method
+     * @param summaries the summaries of the methods computed so far, which include every callee of the method
+     * @return
+     */
+    protected abstract S compute(String method, Map<String, S> summaries);
+
+    /**
+     * @param callGraph
+     * @return the summary of each method of the call graph
+     */
+    public Map<String, S> analyze(CallGraph callGraph) {
+        Map<String, S> summaries = new HashMap<>();
+
+        for (var component : callGraph.getStronglyConnectedComponents()) {
+            component.forEach(method -> summaries.put(method, initial(method)));
+
+            boolean changed = true;
+            while (changed) {
+                changed = false;
+                for (var method : component) {
+                    var summary = compute(method, summaries);
+                    if (!Objects.equals(summary, summaries.get(method))) {
+                        summaries.put(method, summary);
+                        changed = true;
+                    }
+                }
+            }
+        }
+
+        return summaries;
+    }
+}
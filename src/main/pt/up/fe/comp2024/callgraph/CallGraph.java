@@ -0,0 +1,161 @@
+package pt.up.fe.comp2024.callgraph;
+
+import pt.up.fe.comp.jmm.ast.JmmNode;
+
+import java.util.*;
+
+/**
+ * Calls between the methods of the class. There is a node per method of the class, and an edge for each call site.
+ */
+public class CallGraph {
+
+    private final Map<String, JmmNode> methods;
+    private final Map<String, List<CallSite>> callSites;
+    private final Map<JmmNode, CallSite> callSiteOfNode;
+    private final List<List<String>> components;
+    private final Map<String, List<String>> componentOfMethod;
+
+    public CallGraph(Map<String, JmmNode> methods, Map<String, List<CallSite>> callSites) {
+        this.methods = methods;
+        this.callSites = callSites;
+        this.callSiteOfNode = new IdentityHashMap<>();
+
+        callSites.values().forEach(sites -> sites.forEach(site -> callSiteOfNode.put(site.getNode(), site)));
+
+        var tarjan = new Tarjan();
+        for (var method : methods.keySet())
+            if (!tarjan.index.containsKey(method))
+                tarjan.visit(method);
+        this.components = tarjan.components.stream().map(List::copyOf).toList();
+        this.componentOfMethod = new HashMap<>();
+        components.forEach(component -> component.forEach(method -> componentOfMethod.put(method, component)));
+    }
+
+    /**
+     * @return the names of the methods of the class, in declaration order
+     */
+    public List<String> getMethods() {
+        return new ArrayList<>(methods.keySet());
+    }
+
+    /**
+     * @param method
+     * @return the declaration of the method, or Optional.empty() if the method is not declared in the class
+     */
+    public Optional<JmmNode> getMethodDecl(String method) {
+        return Optional.ofNullable(methods.get(method));
+    }
+
+    /**
+     * @param caller
+     * @return the call sites in the body of the given method
+     */
+    public List<CallSite> getCallSites(String caller) {
+        return Collections.unmodifiableList(callSites.getOrDefault(caller, Collections.emptyList()));
+    }
+
+    /**
+     * @param methodCallExpr
+     * @return the call site of the given MethodCallExpr node
+     */
+    public Optional<CallSite> getCallSite(JmmNode methodCallExpr) {
+        return Optional.ofNullable(callSiteOfNode.get(methodCallExpr));
+    }
+
+    /**
+     * @param methodCallExpr
+     * @return true if the call can only reach the method of this class with the same name, assuming no class compiled
+     * separately extends the class
+     * @see CallGraphBuilder#build
+     */
+    public boolean isStaticallyBound(JmmNode methodCallExpr) {
+        return getCallSite(methodCallExpr).map(CallSite::isStaticallyBound).orElse(false);
+    }
+
+    /**
+     * @param caller
+     * @return the methods of the class that the given method calls through statically bound calls
+     */
+    public Set<String> getCallees(String caller) {
+        Set<String> callees = new LinkedHashSet<>();
+        for (var site : getCallSites(caller))
+            if (site.isStaticallyBound())
+                callees.add(site.getCallee());
+        return callees;
+    }
+
+    /**
+     * @param callee
+     * @return the methods of the class that call the given method through statically bound calls
+     */
+    public Set<String> getCallers(String callee) {
+        Set<String> callers = new LinkedHashSet<>();
+        for (var method : methods.keySet())
+            if (getCallees(method).contains(callee))
+                callers.add(method);
+        return callers;
+    }
+
+    /**
+     * The strongly connected components of the graph, computed once with Tarjan's algorithm. Methods in the same
+     * component are mutually recursive.
+     *
+     * @return the components in bottom-up order: the callees of a component are in it or in components before it
+     */
+    public List<List<String>> getStronglyConnectedComponents() {
+        return components;
+    }
+
+    /**
+     * @param method
+     * @return true if the method can call itself, directly or through other methods of the class
+     */
+    public boolean isRecursive(String method) {
+        var component = componentOfMethod.get(method);
+        return component != null && (component.size() > 1 || getCallees(method).contains(method));
+    }
+
+    private class Tarjan {
+        private final Map<String, Integer> index = new HashMap<>();
+        private final Map<String, Integer> lowLink = new HashMap<>();
+        private final Deque<String> stack = new ArrayDeque<>();
+        private final Set<String> onStack = new HashSet<>();
+        private final List<List<String>> components = new ArrayList<>();
+
+        private void visit(String method) {
+            index.put(method, index.size());
+            lowLink.put(method, index.get(method));
+            stack.push(method);
+            onStack.add(method);
+
+            for (var callee : getCallees(method)) {
+                if (!index.containsKey(callee)) {
+                    visit(callee);
+                    lowLink.put(method, Math.min(lowLink.get(method), lowLink.get(callee)));
+                } else if (onStack.contains(callee)) {
+                    lowLink.put(method, Math.min(lowLink.get(method), index.get(callee)));
+                }
+            }
+
+            // method is the root of a component, which is complete once all its callees were visited
+            if (lowLink.get(method).equals(index.get(method))) {
+                List<String> component = new ArrayList<>();
+                String member;
+                do {
+                    member = stack.pop();
+                    onStack.remove(member);
+                    component.add(member);
+                } while (!member.equals(method));
+                components.add(component);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        var builder = new StringBuilder();
+        for (var method : methods.keySet())
+            builder.append(method).append(" -> ").append(getCallees(method)).append("\n");
+        return builder.toString();
+    }
+}
@@ -0,0 +1,80 @@
+package pt.up.fe.comp2024.callgraph;
+
+import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp2024.ast.Kind;
+import pt.up.fe.comp2024.ast.TypeUtils;
+import pt.up.fe.comp2024.symboltable.JmmSymbolTable;
+
+import java.util.*;
+
+import static pt.up.fe.comp2024.ast.Kind.*;
+
+public class CallGraphBuilder {
+
+    /**
+     * Builds the call graph of the class in the given program.
+     * <p>
+     * A call is statically bound (final-equivalent) when its receiver is an object of the class and the method is
+     * declared in the class (and not only inherited from the super class).
+     * <p>
+     * This assumes a closed world: the class is compiled on its own, as the only class of its program, so no subclass
+     * can override its methods. A class compiled separately that extends it could make such a call reach an override,
+     * and the optimizations that rely on the binding (tail calls, shared varargs arrays and constant calls) would then
+     * be wrong for it.
+     *
+     * @param root
+     * @param table
+     * @return
+     */
+    public static CallGraph build(JmmNode root, SymbolTable table) {
+
+        var classDecl = root.getChildren(CLASS_DECL).get(0);
+
+        Map<String, JmmNode> methods = new LinkedHashMap<>();
+        classDecl.getChildren(METHOD_DECL).forEach(method -> methods.put(method.get("name"), method));
+
+        Map<String, List<CallSite>> callSites = new LinkedHashMap<>();
+        for (var method : methods.values()) {
+            var caller = method.get("name");
+            var sites = method.getDescendants(METHOD_CALL_EXPR).stream()
+                    .map(call -> buildCallSite(call, caller, table))
+                    .toList();
+            callSites.put(caller, sites);
+        }
+
+        return new CallGraph(methods, callSites);
+    }
+
+    private static CallSite buildCallSite(JmmNode call, String caller, SymbolTable table) {
+        var callee = call.get("name");
+
+        var isOnClass = isReceiverOfClass(call.getJmmChild(0), table);
+        var isDeclared = JmmSymbolTable.of(table).hasMethod(callee);
+
+        // Methods not declared in the class come from imports or from the super class
+        var isExternal = !isOnClass || !isDeclared;
+        // Closed world: nothing extends the class, so its methods are never overridden
+        var isStaticallyBound = isOnClass && isDeclared;
+
+        return new CallSite(call, caller, callee, isStaticallyBound, isExternal);
+    }
+
+    private static boolean isReceiverOfClass(JmmNode receiver, SymbolTable table) {
+        while (receiver.isInstance(PAREN_EXPR))
+            receiver = receiver.getJmmChild(0);
+
+        if (receiver.isInstance(THIS_EXPR))
+            return true;
+
+        if (receiver.isInstance(NEW_CLASS_EXPR))
+            return receiver.get("name").equals(table.getClassName());
+
+        if (!Kind.check(receiver, VAR_REF_EXPR, METHOD_CALL_EXPR))
+            return false;
+
+        var type = TypeUtils.getExprType(receiver, table);
+        return type != null && !type.isArray() && type.getName().equals(table.getClassName());
+    }
+
+}
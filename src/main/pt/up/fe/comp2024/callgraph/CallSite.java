@@ -0,0 +1,64 @@
+package pt.up.fe.comp2024.callgraph;
+
+import pt.up.fe.comp.jmm.ast.JmmNode;
+
+/**
+ * A method call in the body of a method of the class.
+ */
+public class CallSite {
+
+    private final JmmNode node;
+    private final String caller;
+    private final String callee;
+    private final boolean staticallyBound;
+    private final boolean external;
+
+    public CallSite(JmmNode node, String caller, String callee, boolean staticallyBound, boolean external) {
+        this.node = node;
+        this.caller = caller;
+        this.callee = callee;
+        this.staticallyBound = staticallyBound;
+        this.external = external;
+    }
+
+    /**
+     * @return the MethodCallExpr node of the call
+     */
+    public JmmNode getNode() {
+        return node;
+    }
+
+    /**
+     * @return the name of the method where the call is
+     */
+    public String getCaller() {
+        return caller;
+    }
+
+    /**
+     * @return the name of the called method
+     */
+    public String getCallee() {
+        return callee;
+    }
+
+    /**
+     * @return true if the call can only reach the method of the class with the callee name, i.e. it can be treated
+     * as a static call, assuming no class compiled separately extends the class
+     */
+    public boolean isStaticallyBound() {
+        return staticallyBound;
+    }
+
+    /**
+     * @return true if the callee is not declared in the class (imported classes or the super class)
+     */
+    public boolean isExternal() {
+        return external;
+    }
+
+    @Override
+    public String toString() {
+        return caller + " -> " + callee + (staticallyBound ? " (static)" : "") + (external ? " (external)" : "");
+    }
+}
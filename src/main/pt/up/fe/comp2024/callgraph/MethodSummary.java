@@ -0,0 +1,75 @@
+package pt.up.fe.comp2024.callgraph;
+
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Interprocedural facts about a method of the class.
+ */
+public class MethodSummary {
+
+    private final boolean pure;
+    private final boolean writesFields;
+    private final boolean total;
+    private final String constantReturn;
+
+    public MethodSummary(boolean pure, boolean writesFields, boolean total, String constantReturn) {
+        this.pure = pure;
+        this.writesFields = writesFields;
+        this.total = total;
+        this.constantReturn = constantReturn;
+    }
+
+    /**
+     * @return true if the method has no side effects: it does not write fields or arrays, and only calls pure
+     * methods of the class
+     */
+    public boolean isPure() {
+        return pure;
+    }
+
+    /**
+     * @return true if the method, or a method it calls, may assign a field of the class
+     */
+    public boolean writesFields() {
+        return writesFields;
+    }
+
+    /**
+     * @return true if the method always returns normally: it has no loops or recursion, and no operations that can
+     * throw (divisions, array accesses and allocations, calls outside the class)
+     */
+    public boolean isTotal() {
+        return total;
+    }
+
+    /**
+     * @return the value of the literal returned by every return of the method, if there is one
+     */
+    public Optional<String> getConstantReturn() {
+        return Optional.ofNullable(constantReturn);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof MethodSummary that)) return false;
+        return pure == that.pure && writesFields == that.writesFields && total == that.total &&
+                Objects.equals(constantReturn, that.constantReturn);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(pure, writesFields, total, constantReturn);
+    }
+
+    @Override
+    public String toString() {
+        return "MethodSummary{" +
+                "pure=" + pure +
+                ", writesFields=" + writesFields +
+                ", total=" + total +
+                ", constantReturn=" + constantReturn +
+                '}';
+    }
+}
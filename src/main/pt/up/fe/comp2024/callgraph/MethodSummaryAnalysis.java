@@ -0,0 +1,137 @@
+package pt.up.fe.comp2024.callgraph;
+
+import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp2024.ast.Kind;
+import pt.up.fe.comp2024.symboltable.SymbolBinder;
+import pt.up.fe.comp2024.symboltable.SymbolScope;
+
+import java.util.Map;
+
+import static pt.up.fe.comp2024.ast.Kind.*;
+
+/**
+ * Computes the {@link MethodSummary} of every method of the class.
+ */
+public class MethodSummaryAnalysis extends BottomUpAnalysis<MethodSummary> {
+
+    private final SymbolTable table;
+    private final CallGraph callGraph;
+
+    public MethodSummaryAnalysis(SymbolTable table, CallGraph callGraph) {
+        this.table = table;
+        this.callGraph = callGraph;
+    }
+
+    public Map<String, MethodSummary> analyze() {
+        return analyze(callGraph);
+    }
+
+    @Override
+    protected MethodSummary initial(String method) {
+        return new MethodSummary(true, false, true, null);
+    }
+
+    @Override
+    protected MethodSummary compute(String method, Map<String, MethodSummary> summaries) {
+        var methodDecl = callGraph.getMethodDecl(method).orElseThrow();
+
+        boolean pure = true;
+        boolean writesFields = false;
+        boolean total = !callGraph.isRecursive(method);
+
+        for (var site : callGraph.getCallSites(method)) {
+            // Summaries of bound calls hold as long as no class compiled separately overrides the callee
+            var callee = site.isStaticallyBound() ? summaries.get(site.getCallee()) : null;
+            if (callee == null) {
+                // nothing is known about calls outside the class, or that may reach an override
+                pure = false;
+                writesFields = true;
+                total = false;
+                continue;
+            }
+
+            pure &= callee.isPure();
+            writesFields |= callee.writesFields();
+            total &= callee.isTotal();
+        }
+
+        for (var assign : methodDecl.getDescendants(ASSIGN_STMT)) {
+            var dest = assign.getJmmChild(0);
+            if (dest.isInstance(ARRAY_ACCESS_EXPR)) {
+                pure = false;
+            } else if (isField(dest)) {
+                pure = false;
+                writesFields = true;
+            }
+        }
+
+        if (!methodDecl.getDescendants(WHILE_STMT).isEmpty() ||
+                methodDecl.getDescendantsStream().anyMatch(this::canThrow)) {
+            total = false;
+        }
+
+        return new MethodSummary(pure, writesFields, total, getConstantReturn(methodDecl, summaries));
+    }
+
+    private boolean canThrow(JmmNode node) {
+        if (Kind.check(node, ARRAY_ACCESS_EXPR, LENGTH_EXPR, NEW_ARRAY_SIZE_EXPR))
+            return true;
+
+        // A call throws if its receiver is null, which only this never is, or if the callee is unknown
+        if (node.isInstance(METHOD_CALL_EXPR))
+            return !isOnThis(node) || !callGraph.isStaticallyBound(node);
+
+        return node.isInstance(BINARY_EXPR) && node.get("op").equals("/");
+    }
+
+    private static boolean isOnThis(JmmNode methodCallExpr) {
+        var receiver = methodCallExpr.getJmmChild(0);
+        while (receiver.isInstance(PAREN_EXPR))
+            receiver = receiver.getJmmChild(0);
+
+        return receiver.isInstance(THIS_EXPR);
+    }
+
+    private boolean isField(JmmNode varRef) {
+        if (!varRef.isInstance(VAR_REF_EXPR))
+            return false;
+
+        return SymbolBinder.resolve(varRef, table)
+                .map(resolved -> resolved.scope() == SymbolScope.FIELD)
+                .orElse(false);
+    }
+
+    private String getConstantReturn(JmmNode methodDecl, Map<String, MethodSummary> summaries) {
+        String constant = null;
+
+        for (var returnStmt : methodDecl.getDescendants(RETURN_STMT)) {
+            if (returnStmt.getNumChildren() == 0)
+                return null;
+
+            var value = getConstant(returnStmt.getJmmChild(0), summaries);
+            if (value == null || (constant != null && !constant.equals(value)))
+                return null;
+
+            constant = value;
+        }
+
+        return constant;
+    }
+
+    private String getConstant(JmmNode expr, Map<String, MethodSummary> summaries) {
+        while (expr.isInstance(PAREN_EXPR))
+            expr = expr.getJmmChild(0);
+
+        if (Kind.check(expr, INTEGER_LITERAL, BOOLEAN_LITERAL))
+            return expr.get("value");
+
+        // A bound call returns the constant of the method of the class, in the closed world of CallGraphBuilder.build
+        if (expr.isInstance(METHOD_CALL_EXPR) && callGraph.isStaticallyBound(expr)) {
+            var callee = summaries.get(expr.get("name"));
+            return callee == null ? null : callee.getConstantReturn().orElse(null);
+        }
+
+        return null;
+    }
+}
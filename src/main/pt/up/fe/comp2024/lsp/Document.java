@@ -0,0 +1,190 @@
+package pt.up.fe.comp2024.lsp;
+
+import pt.up.fe.comp.jmm.analysis.JmmSemanticsResult;
+import pt.up.fe.comp.jmm.parser.JmmParserResult;
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp.jmm.report.Stage;
+import pt.up.fe.comp2024.analysis.JmmAnalysisImpl;
+import pt.up.fe.comp2024.parser.JmmIncrementalParser;
+import pt.up.fe.comp2024.parser.JmmIncrementalParser.TextEdit;
+import pt.up.fe.comp2024.parser.JmmParserImpl;
+import pt.up.fe.comp2024.symboltable.JmmSymbolTable;
+import pt.up.fe.comp2024.symboltable.JmmSymbolTableBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * A document open in the editor, with the results of parsing and analysing its text, which are kept until the text
+ * changes.
+ * <p>
+ * The text is parsed again on every change, incrementally when the change is inside a single member of the class, but
+ * it is only analysed again when the results of the analysis are asked for. The symbol table of the last analysis is
+ * updated with the member changed by each incremental parse, instead of being built again. Lines and columns of the editor are counted
+ * from 0, as in the protocol.
+ */
+class Document {
+
+    private final Map<String, String> config;
+    private final JmmParserImpl parser;
+    private final JmmIncrementalParser incrementalParser;
+
+    private String text;
+    private int version;
+    private int[] lineOffsets;
+    private JmmParserResult parserResult;
+    // Declarations of the current AST, null until the text is analysed or after a full parse
+    private JmmSymbolTable symbolTable;
+    // Null until the current text is analysed
+    private JmmSemanticsResult semanticsResult;
+    private Report analysisError;
+
+    Document(String text, int version, Map<String, String> config) {
+        this.config = config;
+        this.parser = new JmmParserImpl();
+        this.incrementalParser = new JmmIncrementalParser();
+
+        setText(text, version);
+    }
+
+    int getVersion() {
+        return version;
+    }
+
+    /**
+     * Replaces the whole text.
+     *
+     * @param text
+     * @param version
+     */
+    void setText(String text, int version) {
+        this.text = text;
+        this.version = version;
+        this.lineOffsets = null;
+        this.parserResult = parser.parse(text, config);
+        this.symbolTable = null;
+        invalidate();
+    }
+
+    /**
+     * Replaces the text between two positions.
+     *
+     * @param startLine
+     * @param startCharacter
+     * @param endLine
+     * @param endCharacter
+     * @param replacement
+     * @param version
+     */
+    void edit(int startLine, int startCharacter, int endLine, int endCharacter, String replacement, int version) {
+        var start = getOffset(startLine, startCharacter);
+        var end = Math.max(start, getOffset(endLine, endCharacter));
+
+        var result = incrementalParser.reparse(text, parserResult, new TextEdit(start, end - start, replacement));
+
+        this.text = result.code();
+        this.version = version;
+        this.lineOffsets = null;
+        this.parserResult = result.parserResult();
+        this.symbolTable = result.isIncremental() && symbolTable != null ?
+                JmmSymbolTableBuilder.update(symbolTable, parserResult.getRootNode(), result.member()) : null;
+        invalidate();
+    }
+
+    private void invalidate() {
+        semanticsResult = null;
+        analysisError = null;
+    }
+
+    JmmParserResult getParserResult() {
+        return parserResult;
+    }
+
+    /**
+     * Analyses the text, if it was not analysed since it last changed.
+     *
+     * @return the results of the analysis, or empty if the text has syntax errors, which leave an AST that cannot be
+     * analysed
+     */
+    Optional<JmmSemanticsResult> getSemanticsResult() {
+        if (semanticsResult != null) {
+            return Optional.of(semanticsResult);
+        }
+        if (parserResult.getRootNode() == null || !parserResult.getReports().isEmpty() || analysisError != null) {
+            return Optional.empty();
+        }
+
+        try {
+            if (symbolTable == null) {
+                symbolTable = JmmSymbolTableBuilder.build(parserResult.getRootNode());
+            }
+            semanticsResult = new JmmAnalysisImpl().semanticAnalysis(parserResult, symbolTable);
+        } catch (RuntimeException e) {
+            symbolTable = null;
+            analysisError = Report.newError(Stage.SEMANTIC, -1, -1, "Could not analyse the document: " + e.getMessage(),
+                    e);
+        }
+
+        return Optional.ofNullable(semanticsResult);
+    }
+
+    /**
+     * @return the reports of parsing the text and, if it has no syntax errors, of analysing it
+     */
+    List<Report> getReports() {
+        List<Report> reports = new ArrayList<>(parserResult.getReports());
+        getSemanticsResult().ifPresent(result -> reports.addAll(result.getReports()));
+        if (analysisError != null) {
+            reports.add(analysisError);
+        }
+
+        return reports;
+    }
+
+    /**
+     * @param line
+     * @param character
+     * @return the offset in the text of the position, which is moved to the end of the text or of its line if past it
+     */
+    int getOffset(int line, int character) {
+        var lines = getLineOffsets();
+        if (line >= lines.length) {
+            return text.length();
+        }
+
+        var lineEnd = line + 1 < lines.length ? lines[line + 1] - 1 : text.length();
+        return Math.min(lines[Math.max(line, 0)] + Math.max(character, 0), lineEnd);
+    }
+
+    private int[] getLineOffsets() {
+        if (lineOffsets != null) {
+            return lineOffsets;
+        }
+
+        List<Integer> offsets = new ArrayList<>();
+        offsets.add(0);
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == '\n') {
+                offsets.add(i + 1);
+            }
+        }
+
+        lineOffsets = offsets.stream().mapToInt(Integer::intValue).toArray();
+        return lineOffsets;
+    }
+
+    /**
+     * @param report
+     * @return the severity of a diagnostic of the protocol for the report
+     */
+    static int getSeverity(Report report) {
+        return switch (report.getType()) {
+            case ERROR -> 1;
+            case WARNING -> 2;
+            case LOG -> 3;
+            case DEBUG -> 4;
+        };
+    }
+}
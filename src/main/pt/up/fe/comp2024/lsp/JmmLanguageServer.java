@@ -0,0 +1,430 @@
+package pt.up.fe.comp2024.lsp;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp2024.CompilerConfig;
+import pt.up.fe.comp2024.lsp.NodeLocator.Position;
+import pt.up.fe.comp2024.symboltable.JmmSymbolTable;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A language server for Java--, which talks the Language Server Protocol over standard input and output.
+ * <p>
+ * It publishes the syntax and semantic errors of the open documents as diagnostics, and answers requests for the
+ * declaration of, and a description of, what is at a position: a variable, a method call or a class. Each document is
+ * kept with the results of parsing and analysing it. A change parses the document again, incrementally when it can,
+ * but the analysis, and the diagnostics, wait until there is a pause in the changes, unless a request needs them
+ * sooner.
+ * <p>
+ * Messages are handled one at a time, in the order they arrive, by a single thread, which also runs the delayed
+ * analyses, so documents are never changed while they are analysed. The options of the compiler, e.g. "lexer" or
+ * "classPath", can be given in the initializationOptions of the initialize request, and "debounce" sets how long
+ * analyses wait, in milliseconds.
+ */
+public class JmmLanguageServer {
+
+    private static final long DEFAULT_DEBOUNCE = 200;
+
+    // Error codes of JSON-RPC
+    private static final int METHOD_NOT_FOUND = -32601;
+    private static final int INTERNAL_ERROR = -32603;
+
+    // Kinds of text document synchronization: the whole text, or the changed ranges
+    private static final int INCREMENTAL_SYNC = 2;
+
+    private final LspConnection connection;
+    private final ScheduledThreadPoolExecutor executor;
+
+    // Only used by the thread of the executor
+    private final Map<String, Document> documents;
+    private final Map<String, ScheduledFuture<?>> pendingAnalyses;
+    private final Map<String, String> config;
+    private long debounce;
+
+    private volatile boolean isShutdown;
+
+    public JmmLanguageServer(InputStream input, OutputStream output) {
+        this.connection = new LspConnection(input, output);
+        this.executor = new ScheduledThreadPoolExecutor(1);
+        this.executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+
+        this.documents = new HashMap<>();
+        this.pendingAnalyses = new HashMap<>();
+        this.config = new HashMap<>();
+        this.config.put("parser", CompilerConfig.DESCENT_PARSER);
+        this.debounce = DEFAULT_DEBOUNCE;
+    }
+
+    public static void main(String[] args) {
+        System.exit(new JmmLanguageServer(System.in, System.out).run());
+    }
+
+    /**
+     * Handles messages until the exit notification or the end of the input.
+     *
+     * @return the exit code, 0 if the server was shut down before it exited and 1 otherwise
+     */
+    public int run() {
+        try {
+            JsonObject message;
+            while ((message = connection.read()) != null) {
+                if (isMethod(message, "exit")) {
+                    break;
+                }
+
+                var request = message;
+                executor.execute(() -> handle(request));
+            }
+        } catch (IOException e) {
+            System.err.println("Could not read message: " + e.getMessage());
+        }
+
+        // After the messages still waiting, which may schedule analyses until then
+        executor.execute(executor::shutdown);
+        try {
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        return isShutdown ? 0 : 1;
+    }
+
+    private static boolean isMethod(JsonObject message, String method) {
+        return message.has("method") && message.get("method").getAsString().equals(method);
+    }
+
+    private void handle(JsonObject message) {
+        // Responses to requests of the server are ignored, as it sends none
+        if (!message.has("method")) {
+            return;
+        }
+
+        var method = message.get("method").getAsString();
+        var id = message.has("id") ? message.get("id") : null;
+        var params = message.has("params") && message.get("params").isJsonObject() ?
+                message.getAsJsonObject("params") : new JsonObject();
+
+        try {
+            JsonElement result = switch (method) {
+                case "initialize" -> initialize(params);
+                case "shutdown" -> shutdown();
+                case "textDocument/didOpen" -> didOpen(params);
+                case "textDocument/didChange" -> didChange(params);
+                case "textDocument/didClose" -> didClose(params);
+                case "textDocument/hover" -> hover(params);
+                case "textDocument/definition" -> definition(params);
+                default -> {
+                    if (id != null) {
+                        sendError(id, METHOD_NOT_FOUND, "Unknown method '" + method + "'");
+                    }
+                    yield null;
+                }
+            };
+
+            if (id != null && result != null) {
+                sendResult(id, result);
+            }
+        } catch (RuntimeException e) {
+            if (id != null) {
+                sendError(id, INTERNAL_ERROR, "Could not handle '" + method + "': " + e);
+            } else {
+                System.err.println("Could not handle '" + method + "': " + e);
+            }
+        }
+    }
+
+    private JsonElement initialize(JsonObject params) {
+        if (params.has("initializationOptions") && params.get("initializationOptions").isJsonObject()) {
+            for (var option : params.getAsJsonObject("initializationOptions").entrySet()) {
+                if (option.getKey().equals("debounce")) {
+                    debounce = option.getValue().getAsLong();
+                } else {
+                    config.put(option.getKey(), option.getValue().getAsString());
+                }
+            }
+        }
+
+        var sync = new JsonObject();
+        sync.addProperty("openClose", true);
+        sync.addProperty("change", INCREMENTAL_SYNC);
+
+        var capabilities = new JsonObject();
+        capabilities.add("textDocumentSync", sync);
+        capabilities.addProperty("hoverProvider", true);
+        capabilities.addProperty("definitionProvider", true);
+
+        var serverInfo = new JsonObject();
+        serverInfo.addProperty("name", "jmm");
+
+        var result = new JsonObject();
+        result.add("capabilities", capabilities);
+        result.add("serverInfo", serverInfo);
+        return result;
+    }
+
+    private JsonElement shutdown() {
+        // Publish the diagnostics still waiting, so a client sees the results of its last changes
+        for (var uri : pendingAnalyses.keySet().toArray(String[]::new)) {
+            pendingAnalyses.get(uri).cancel(false);
+            publishDiagnostics(uri);
+        }
+
+        isShutdown = true;
+        return JsonNull.INSTANCE;
+    }
+
+    private JsonElement didOpen(JsonObject params) {
+        var textDocument = params.getAsJsonObject("textDocument");
+        var uri = textDocument.get("uri").getAsString();
+
+        documents.put(uri, new Document(textDocument.get("text").getAsString(),
+                textDocument.get("version").getAsInt(), getConfig(uri)));
+        scheduleAnalysis(uri, 0);
+
+        return null;
+    }
+
+    private JsonElement didChange(JsonObject params) {
+        var textDocument = params.getAsJsonObject("textDocument");
+        var uri = textDocument.get("uri").getAsString();
+        var version = textDocument.get("version").getAsInt();
+
+        var document = documents.get(uri);
+        if (document == null) {
+            return null;
+        }
+
+        for (var element : params.getAsJsonArray("contentChanges")) {
+            var change = element.getAsJsonObject();
+            var text = change.get("text").getAsString();
+            if (!change.has("range")) {
+                document.setText(text, version);
+                continue;
+            }
+
+            var range = change.getAsJsonObject("range");
+            var start = range.getAsJsonObject("start");
+            var end = range.getAsJsonObject("end");
+            document.edit(start.get("line").getAsInt(), start.get("character").getAsInt(),
+                    end.get("line").getAsInt(), end.get("character").getAsInt(), text, version);
+        }
+        scheduleAnalysis(uri, debounce);
+
+        return null;
+    }
+
+    private JsonElement didClose(JsonObject params) {
+        var uri = params.getAsJsonObject("textDocument").get("uri").getAsString();
+
+        documents.remove(uri);
+        var pending = pendingAnalyses.remove(uri);
+        if (pending != null) {
+            pending.cancel(false);
+        }
+
+        // Clear the diagnostics of the closed document
+        var diagnostics = new JsonObject();
+        diagnostics.addProperty("uri", uri);
+        diagnostics.add("diagnostics", new JsonArray());
+        sendNotification("textDocument/publishDiagnostics", diagnostics);
+
+        return null;
+    }
+
+    private JsonElement hover(JsonObject params) {
+        return findNode(params).flatMap(found -> NodeLocator.describe(found.node(), found.table()).map(description -> {
+            var contents = new JsonObject();
+            contents.addProperty("kind", "markdown");
+            contents.addProperty("value", "```java\n" + description + "\n```");
+
+            var hover = new JsonObject();
+            hover.add("contents", contents);
+            hover.add("range", toRange(found.node()));
+            return (JsonElement) hover;
+        })).orElse(JsonNull.INSTANCE);
+    }
+
+    private JsonElement definition(JsonObject params) {
+        var uri = params.getAsJsonObject("textDocument").get("uri").getAsString();
+
+        return findNode(params).flatMap(found -> NodeLocator.findDeclaration(found.node(), found.table()))
+                .map(declaration -> {
+                    var location = new JsonObject();
+                    location.addProperty("uri", uri);
+                    location.add("range", toRange(declaration));
+                    return (JsonElement) location;
+                })
+                .orElse(JsonNull.INSTANCE);
+    }
+
+    private record FoundNode(JmmNode node, JmmSymbolTable table) {
+    }
+
+    /**
+     * Finds the node at the position of a request, in the results of analysing the document, which is analysed now if
+     * its analysis is still waiting.
+     */
+    private Optional<FoundNode> findNode(JsonObject params) {
+        var uri = params.getAsJsonObject("textDocument").get("uri").getAsString();
+        var position = params.getAsJsonObject("position");
+
+        var document = documents.get(uri);
+        if (document == null) {
+            return Optional.empty();
+        }
+
+        return document.getSemanticsResult().flatMap(result -> {
+            var table = JmmSymbolTable.of(result.getSymbolTable());
+            var root = result.getRootNode();
+            return NodeLocator.find(root, new Position(position.get("line").getAsInt() + 1,
+                            position.get("character").getAsInt()))
+                    .map(node -> new FoundNode(node, table));
+        });
+    }
+
+    /**
+     * Analyses the document after a delay, instead of the analysis that was waiting, if any.
+     */
+    private void scheduleAnalysis(String uri, long delay) {
+        var pending = pendingAnalyses.get(uri);
+        if (pending != null) {
+            pending.cancel(false);
+        }
+
+        pendingAnalyses.put(uri, executor.schedule(() -> publishDiagnostics(uri), delay, TimeUnit.MILLISECONDS));
+    }
+
+    private void publishDiagnostics(String uri) {
+        pendingAnalyses.remove(uri);
+
+        var document = documents.get(uri);
+        if (document == null) {
+            return;
+        }
+
+        var diagnostics = new JsonArray();
+        for (var report : document.getReports()) {
+            diagnostics.add(toDiagnostic(report, document));
+        }
+
+        var params = new JsonObject();
+        params.addProperty("uri", uri);
+        params.addProperty("version", document.getVersion());
+        params.add("diagnostics", diagnostics);
+        sendNotification("textDocument/publishDiagnostics", params);
+    }
+
+    private JsonObject toDiagnostic(Report report, Document document) {
+        var diagnostic = new JsonObject();
+
+        // Reports without a position are shown at the start of the document
+        var start = new Position(Math.max(report.getLine(), 1), Math.max(report.getColumn(), 0));
+
+        // Up to the end of the node reported, if one starts where the report is, or else the next character
+        var root = document.getParserResult().getRootNode();
+        var end = root == null ? null : NodeLocator.find(root, start)
+                .filter(node -> NodeLocator.getStart(node).map(start::equals).orElse(false))
+                .map(NodeLocator::getEnd)
+                .orElse(null);
+        if (end == null) {
+            end = new Position(start.line(), start.column() + 1);
+        }
+
+        diagnostic.add("range", toRange(start, end));
+        diagnostic.addProperty("severity", Document.getSeverity(report));
+        diagnostic.addProperty("source", "jmm");
+        diagnostic.addProperty("message", report.getMessage());
+        return diagnostic;
+    }
+
+    private static JsonObject toRange(JmmNode node) {
+        return toRange(NodeLocator.getStart(node).orElse(new Position(1, 0)), NodeLocator.getEnd(node));
+    }
+
+    private static JsonObject toRange(Position start, Position end) {
+        var range = new JsonObject();
+        range.add("start", toPosition(start));
+        range.add("end", toPosition(end));
+        return range;
+    }
+
+    private static JsonObject toPosition(Position position) {
+        var result = new JsonObject();
+        result.addProperty("line", position.line() - 1);
+        result.addProperty("character", position.column());
+        return result;
+    }
+
+    /**
+     * @param uri
+     * @return the options of the compiler for the document, with its file as the input file when it has one, so
+     * imported classes are looked for next to it
+     */
+    private Map<String, String> getConfig(String uri) {
+        var documentConfig = new HashMap<>(config);
+
+        try {
+            var documentUri = URI.create(uri);
+            if ("file".equals(documentUri.getScheme())) {
+                documentConfig.put("inputFile", Path.of(documentUri).toString());
+            }
+        } catch (IllegalArgumentException e) {
+            // Not a file, so imported classes are only looked for in the class path
+        }
+
+        return documentConfig;
+    }
+
+    private void sendResult(JsonElement id, JsonElement result) {
+        var response = new JsonObject();
+        response.addProperty("jsonrpc", "2.0");
+        response.add("id", id);
+        response.add("result", result);
+        send(response);
+    }
+
+    private void sendError(JsonElement id, int code, String message) {
+        var error = new JsonObject();
+        error.addProperty("code", code);
+        error.addProperty("message", message);
+
+        var response = new JsonObject();
+        response.addProperty("jsonrpc", "2.0");
+        response.add("id", id);
+        response.add("error", error);
+        send(response);
+    }
+
+    private void sendNotification(String method, JsonObject params) {
+        var notification = new JsonObject();
+        notification.addProperty("jsonrpc", "2.0");
+        notification.addProperty("method", method);
+        notification.add("params", params);
+        send(notification);
+    }
+
+    private void send(JsonObject message) {
+        try {
+            connection.write(message);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
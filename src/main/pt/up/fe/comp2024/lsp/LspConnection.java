@@ -0,0 +1,102 @@
+package pt.up.fe.comp2024.lsp;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads and writes the JSON-RPC messages of the Language Server Protocol, each preceded by a header with its length in
+ * bytes:
+ * <pre>
+ * Content-Length: 52\r\n
+ * \r\n
+ * {"jsonrpc":"2.0","id":1,"method":"shutdown"}
+ * </pre>
+ * Used by both the server and the {@link ScriptedClient}.
+ */
+public class LspConnection {
+
+    private static final String CONTENT_LENGTH = "Content-Length:";
+
+    private final Gson gson;
+    private final InputStream input;
+    private final OutputStream output;
+
+    public LspConnection(InputStream input, OutputStream output) {
+        this.gson = new GsonBuilder().serializeNulls().create();
+        this.input = new BufferedInputStream(input);
+        this.output = output;
+    }
+
+    /**
+     * @return the next message, or null at the end of the input
+     * @throws IOException
+     */
+    public JsonObject read() throws IOException {
+        var length = -1;
+        while (true) {
+            var line = readLine();
+            if (line == null) {
+                return null;
+            }
+            if (line.isEmpty()) {
+                break;
+            }
+            if (line.regionMatches(true, 0, CONTENT_LENGTH, 0, CONTENT_LENGTH.length())) {
+                length = Integer.parseInt(line.substring(CONTENT_LENGTH.length()).trim());
+            }
+        }
+
+        if (length < 0) {
+            throw new IOException("Message without a " + CONTENT_LENGTH + " header");
+        }
+
+        var content = input.readNBytes(length);
+        if (content.length < length) {
+            return null;
+        }
+
+        return JsonParser.parseString(new String(content, StandardCharsets.UTF_8)).getAsJsonObject();
+    }
+
+    /**
+     * Writes a message. Messages can be written from any thread, one at a time.
+     *
+     * @param message
+     * @throws IOException
+     */
+    public synchronized void write(JsonObject message) throws IOException {
+        var content = gson.toJson(message).getBytes(StandardCharsets.UTF_8);
+        var header = CONTENT_LENGTH + " " + content.length + "\r\n\r\n";
+
+        output.write(header.getBytes(StandardCharsets.US_ASCII));
+        output.write(content);
+        output.flush();
+    }
+
+    /**
+     * @return a line of the header, without its "\r\n", or null at the end of the input
+     */
+    private String readLine() throws IOException {
+        var line = new ByteArrayOutputStream();
+        int c;
+        while ((c = input.read()) != '\n') {
+            if (c == -1) {
+                return null;
+            }
+            if (c != '\r') {
+                line.write(c);
+            }
+        }
+
+        return line.toString(StandardCharsets.US_ASCII);
+    }
+}
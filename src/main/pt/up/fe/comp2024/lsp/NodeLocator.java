@@ -0,0 +1,232 @@
+package pt.up.fe.comp2024.lsp;
+
+import pt.up.fe.comp.jmm.analysis.table.Type;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp.jmm.ast.NodePosition;
+import pt.up.fe.comp2024.ast.Kind;
+import pt.up.fe.comp2024.ast.NodeUtils;
+import pt.up.fe.comp2024.ast.TypeUtils;
+import pt.up.fe.comp2024.symboltable.JmmSymbolTable;
+import pt.up.fe.comp2024.symboltable.MethodSignature;
+import pt.up.fe.comp2024.symboltable.SymbolBinder;
+
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import static pt.up.fe.comp2024.ast.Kind.*;
+
+/**
+ * Finds the nodes of an AST at positions of the code, the declarations they refer to, and describes them.
+ * <p>
+ * Positions are those of the AST, with lines counted from 1 and columns from 0. A node ends at the start of its last
+ * token, so where it really ends is found from the length of that token.
+ */
+class NodeLocator {
+
+    /**
+     * A position in the code, with the line counted from 1 and the column from 0.
+     */
+    record Position(int line, int column) implements Comparable<Position> {
+
+        @Override
+        public int compareTo(Position other) {
+            return line != other.line ? Integer.compare(line, other.line) : Integer.compare(column, other.column);
+        }
+    }
+
+    /**
+     * @param root
+     * @param position
+     * @return the innermost node whose code has the position
+     */
+    static Optional<JmmNode> find(JmmNode root, Position position) {
+        if (!contains(root, position) && !root.isInstance(PROGRAM)) {
+            return Optional.empty();
+        }
+
+        var node = root;
+        search:
+        while (true) {
+            for (var child : node.getChildren()) {
+                if (contains(child, position)) {
+                    node = child;
+                    continue search;
+                }
+            }
+
+            return node.isInstance(PROGRAM) ? Optional.empty() : Optional.of(node);
+        }
+    }
+
+    private static boolean contains(JmmNode node, Position position) {
+        var start = getStart(node);
+        return start.isPresent() && start.get().compareTo(position) <= 0 && position.compareTo(getEnd(node)) < 0;
+    }
+
+    /**
+     * @param node
+     * @return where the first token of the node starts, or empty if the node has no position
+     */
+    static Optional<Position> getStart(JmmNode node) {
+        return node.getOptional(NodePosition.LINE_START.getKey())
+                .map(line -> new Position(Integer.parseInt(line),
+                        Integer.parseInt(node.get(NodePosition.COL_START.getKey()))));
+    }
+
+    /**
+     * @param node a node with a position
+     * @return where the last token of the node ends
+     */
+    static Position getEnd(JmmNode node) {
+        var line = Integer.parseInt(node.get(NodePosition.LINE_END.getKey()));
+        var column = Integer.parseInt(node.get(NodePosition.COL_END.getKey()));
+
+        // The last token of a binary expression, for one, is the last token of its last child
+        if (node.getNumChildren() > 0) {
+            var lastChild = node.getJmmChild(node.getNumChildren() - 1);
+            if (lastChild.getOptional(NodePosition.LINE_END.getKey()).map(Integer::parseInt).orElse(-1) == line
+                    && Integer.parseInt(lastChild.get(NodePosition.COL_END.getKey())) == column) {
+                return getEnd(lastChild);
+            }
+        }
+
+        return new Position(line, column + getLastTokenLength(node));
+    }
+
+    private static int getLastTokenLength(JmmNode node) {
+        return switch (Kind.of(node)) {
+            case VAR_REF_EXPR, PARAM -> node.get("name").length();
+            case TYPE -> NodeUtils.getBooleanAttribute(node, "isArray", "false") ? 1 : node.get("name").length();
+            case INTEGER_LITERAL, BOOLEAN_LITERAL -> node.get("value").length();
+            case THIS_EXPR -> "this".length();
+            case LENGTH_EXPR -> "length".length();
+            // ';', ')', ']' or '}'
+            default -> 1;
+        };
+    }
+
+    /**
+     * @param node
+     * @param table
+     * @return the declaration of the variable, method or class the node refers to, if it is in the AST
+     */
+    static Optional<JmmNode> findDeclaration(JmmNode node, JmmSymbolTable table) {
+        var root = getRoot(node);
+        var classDecl = root.getChildren(CLASS_DECL).stream().findFirst();
+
+        return switch (Kind.of(node)) {
+            case VAR_REF_EXPR -> SymbolBinder.resolve(node, table).flatMap(resolved -> {
+                var name = resolved.symbol().getName();
+                var method = node.getAncestor(METHOD_DECL);
+                return switch (resolved.scope()) {
+                    case LOCAL -> method.flatMap(methodDecl -> findNamed(methodDecl, VAR_DECL, "name", name));
+                    case PARAM -> method.flatMap(methodDecl -> findNamed(methodDecl, PARAM, "name", name));
+                    case FIELD -> classDecl.flatMap(decl -> findNamed(decl, VAR_DECL, "name", name));
+                    case IMPORT -> findNamed(root, IMPORT_DECL, "ID", name);
+                };
+            });
+            case METHOD_CALL_EXPR -> {
+                var calleeType = TypeUtils.getExprType(node.getJmmChild(0), table);
+                if (calleeType == null || !calleeType.getName().equals(table.getClassName())) {
+                    yield Optional.empty();
+                }
+                yield classDecl.flatMap(decl -> findNamed(decl, METHOD_DECL, "name", node.get("name")));
+            }
+            case NEW_CLASS_EXPR, TYPE -> {
+                var name = node.get("name");
+                if (name.equals(table.getClassName())) {
+                    yield classDecl;
+                }
+                yield findNamed(root, IMPORT_DECL, "ID", name);
+            }
+            default -> Optional.empty();
+        };
+    }
+
+    private static JmmNode getRoot(JmmNode node) {
+        while (node.getParent() != null) {
+            node = node.getParent();
+        }
+        return node;
+    }
+
+    private static Optional<JmmNode> findNamed(JmmNode parent, Kind kind, String attribute, String name) {
+        return parent.getChildren(kind).stream()
+                .filter(child -> child.getOptional(attribute).map(name::equals).orElse(false))
+                .findFirst();
+    }
+
+    /**
+     * @param node
+     * @param table
+     * @return a line of Java-- describing the node, e.g. the declaration a variable reference refers to, or the type of
+     * an expression
+     */
+    static Optional<String> describe(JmmNode node, JmmSymbolTable table) {
+        var kind = Kind.of(node);
+
+        return switch (kind) {
+            case VAR_REF_EXPR -> SymbolBinder.resolve(node, table).map(resolved -> {
+                var symbol = resolved.symbol();
+                return switch (resolved.scope()) {
+                    case LOCAL -> "(local variable) " + toString(symbol.getType()) + " " + symbol.getName();
+                    case PARAM -> "(parameter) " + toString(symbol.getType()) + " " + symbol.getName();
+                    case FIELD -> "(field) " + toString(symbol.getType()) + " " + symbol.getName();
+                    case IMPORT -> "(imported class) " + symbol.getName();
+                };
+            });
+            case METHOD_CALL_EXPR -> {
+                var name = node.get("name");
+                var argumentCount = node.getNumChildren() - 1;
+                var importedMethod = TypeUtils.getImportedMethod(node, table);
+                if (importedMethod.isPresent()) {
+                    yield importedMethod.map(NodeLocator::toString);
+                }
+
+                var calleeType = TypeUtils.getExprType(node.getJmmChild(0), table);
+                if (calleeType != null && calleeType.getName().equals(table.getClassName())) {
+                    var method = table.getMethodSignatures(name).stream()
+                            .filter(signature -> signature.parameterTypes().size() == argumentCount)
+                            .findFirst();
+                    if (method.isPresent()) {
+                        yield method.map(NodeLocator::toString);
+                    }
+                }
+
+                yield describeType(node, table);
+            }
+            case METHOD_DECL -> table.getMethodSignatures(node.get("name")).stream()
+                    .findFirst()
+                    .map(NodeLocator::toString);
+            case VAR_DECL, PARAM -> Optional.of(toString(TypeUtils.getType(node.getJmmChild(0).get("name"),
+                    NodeUtils.getBooleanAttribute(node.getJmmChild(0), "isArray", "false"))) + " " + node.get("name"));
+            case TYPE -> Optional.of(toString(TypeUtils.getType(node.get("name"),
+                    NodeUtils.getBooleanAttribute(node, "isArray", "false"))));
+            case CLASS_DECL -> Optional.of("class " + node.get("name")
+                    + node.getOptional("superClass").map(superClass -> " extends " + superClass).orElse(""));
+            default -> kind.isExpr() || kind == THIS_EXPR ? describeType(node, table) : Optional.empty();
+        };
+    }
+
+    private static Optional<String> describeType(JmmNode expr, JmmSymbolTable table) {
+        try {
+            // Calls to imported classes whose symbol tables were not found have no known type
+            return Optional.ofNullable(TypeUtils.getExprType(expr, table))
+                    .filter(type -> type != TypeUtils.getImportedType())
+                    .map(NodeLocator::toString);
+        } catch (RuntimeException e) {
+            // Expressions whose type could not be computed were reported by the analysis
+            return Optional.empty();
+        }
+    }
+
+    private static String toString(Type type) {
+        return type.getName() + (type.isArray() ? "[]" : "");
+    }
+
+    private static String toString(MethodSignature method) {
+        return toString(method.returnType()) + " " + method.name() + method.parameterTypes().stream()
+                .map(NodeLocator::toString)
+                .collect(Collectors.joining(", ", "(", ")"));
+    }
+}
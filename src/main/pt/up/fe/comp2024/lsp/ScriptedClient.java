@@ -0,0 +1,130 @@
+package pt.up.fe.comp2024.lsp;
+
+import com.google.gson.JsonParser;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Drives a language server with a script of messages, to try it without an editor.
+ * <p>
+ * Each line of the script is a JSON message sent to the server, except for empty lines and comments, which start with
+ * '#', and "sleep" lines, e.g. "sleep 300", which wait for that many milliseconds, long enough for delayed analyses to
+ * publish their diagnostics. Every message the server sends is printed, one per line. The input ends after the last
+ * line, so a script usually ends with the shutdown request and the exit notification.
+ * <p>
+ * Usage: {@code ScriptedClient <script> [<command> <args>...]}, where the command, if given, starts the server, which is
+ * then talked to over its standard input and output. Otherwise, a {@link JmmLanguageServer} is run in this process.
+ */
+public class ScriptedClient {
+
+    private static final int PIPE_SIZE = 1 << 16;
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            System.err.println("Usage: ScriptedClient <script> [<command> <args>...]");
+            System.exit(2);
+        }
+
+        var script = Files.readAllLines(Path.of(args[0]));
+
+        if (args.length > 1) {
+            var server = new ProcessBuilder(Arrays.copyOfRange(args, 1, args.length))
+                    .redirectError(ProcessBuilder.Redirect.INHERIT)
+                    .start();
+            var exitCode = run(script, server.getInputStream(), server.getOutputStream(), System.out);
+            System.exit(exitCode == 0 ? server.waitFor() : exitCode);
+        }
+
+        System.exit(runInProcess(script, System.out));
+    }
+
+    /**
+     * Runs the script against a {@link JmmLanguageServer} in this process.
+     *
+     * @param script
+     * @param out    where the messages received are printed
+     * @return 0, or 1 if the script has a message that is not JSON or the server exited without being shut down
+     */
+    static int runInProcess(Iterable<String> script, PrintStream out) throws Exception {
+        // The server reads what the client writes, and the other way around
+        var serverInput = new PipedInputStream(PIPE_SIZE);
+        var clientOutput = new PipedOutputStream(serverInput);
+        var clientInput = new PipedInputStream(PIPE_SIZE);
+        var serverOutput = new PipedOutputStream(clientInput);
+
+        var server = new JmmLanguageServer(serverInput, serverOutput);
+        var serverExitCode = new int[1];
+        var serverThread = new Thread(() -> {
+            serverExitCode[0] = server.run();
+            try {
+                serverOutput.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        serverThread.start();
+
+        var exitCode = run(script, clientInput, clientOutput, out);
+        serverThread.join();
+
+        return exitCode == 0 ? serverExitCode[0] : exitCode;
+    }
+
+    /**
+     * Sends the messages of the script, and prints the messages received until the server closes its output.
+     *
+     * @param script
+     * @param input  what the server writes
+     * @param output what the server reads
+     * @param out    where the messages received are printed
+     * @return 0, or 1 if the script has a message that is not JSON
+     */
+    private static int run(Iterable<String> script, InputStream input, OutputStream output, PrintStream out)
+            throws Exception {
+        var connection = new LspConnection(input, output);
+
+        var printer = new Thread(() -> {
+            try {
+                for (var message = connection.read(); message != null; message = connection.read()) {
+                    out.println(message);
+                }
+            } catch (IOException e) {
+                // The server is gone
+            }
+        });
+        printer.start();
+
+        var exitCode = 0;
+        for (var line : script) {
+            line = line.strip();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+
+            if (line.startsWith("sleep ")) {
+                Thread.sleep(Long.parseLong(line.substring("sleep ".length()).strip()));
+                continue;
+            }
+
+            try {
+                connection.write(JsonParser.parseString(line).getAsJsonObject());
+            } catch (RuntimeException e) {
+                System.err.println("Not a JSON message: " + line);
+                exitCode = 1;
+            }
+        }
+        output.close();
+
+        printer.join();
+        return exitCode;
+    }
+}
@@ -3,15 +3,25 @@ package pt.up.fe.comp2024.optimization;
 import pt.up.fe.comp.jmm.analysis.JmmSemanticsResult;
 import pt.up.fe.comp.jmm.ollir.JmmOptimization;
 import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp2024.CompilerConfig;
+import pt.up.fe.comp2024.callgraph.CallGraphBuilder;
+import pt.up.fe.comp2024.callgraph.MethodSummary;
+import pt.up.fe.comp2024.callgraph.MethodSummaryAnalysis;
 
 import java.util.Collections;
+import java.util.Map;
 
 public class JmmOptimizationImpl implements JmmOptimization {
 
     @Override
     public OllirResult toOllir(JmmSemanticsResult semanticsResult) {
 
-        var visitor = new OllirGeneratorVisitor(semanticsResult.getSymbolTable());
+        var table = semanticsResult.getSymbolTable();
+        var callGraph = CallGraphBuilder.build(semanticsResult.getRootNode(), table);
+        Map<String, MethodSummary> summaries = CompilerConfig.getOptimize(semanticsResult.getConfig()) ?
+                new MethodSummaryAnalysis(table, callGraph).analyze() : Collections.emptyMap();
+        var visitor = new OllirGeneratorVisitor(table, callGraph, summaries,
+                CompilerConfig.getParallel(semanticsResult.getConfig()));
         var ollirCode = visitor.visit(semanticsResult.getRootNode());
 
         return new OllirResult(semanticsResult, ollirCode, Collections.emptyList());
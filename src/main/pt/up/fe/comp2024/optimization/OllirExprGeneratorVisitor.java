@@ -3,19 +3,26 @@ package pt.up.fe.comp2024.optimization;
 import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
 import pt.up.fe.comp.jmm.analysis.table.Type;
 import pt.up.fe.comp.jmm.ast.JmmNode;
-import pt.up.fe.comp.jmm.ast.PreorderJmmVisitor;
+import pt.up.fe.comp2024.ast.PreorderKindVisitor;
 import pt.up.fe.comp2024.ast.TypeUtils;
-import pt.up.fe.specs.util.exceptions.NotImplementedException;
+import pt.up.fe.comp2024.callgraph.CallGraph;
+import pt.up.fe.comp2024.callgraph.MethodSummary;
+import pt.up.fe.comp2024.symboltable.JmmSymbolTable;
+import pt.up.fe.comp2024.symboltable.ResolvedSymbol;
+import pt.up.fe.comp2024.symboltable.SymbolScope;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 import static pt.up.fe.comp2024.ast.Kind.*;
 
 /**
  * Generates OLLIR code from JmmNodes that are expressions.
  */
-public class OllirExprGeneratorVisitor extends PreorderJmmVisitor<Void, OllirExprResult> {
+public class OllirExprGeneratorVisitor extends PreorderKindVisitor<Void, OllirExprResult> {
 
     private static final String SPACE = " ";
     private static final String ASSIGN = ":=";
@@ -23,8 +30,39 @@ public class OllirExprGeneratorVisitor extends PreorderJmmVisitor<Void, OllirExp
 
     private final SymbolTable table;
 
-    public OllirExprGeneratorVisitor(SymbolTable table) {
+    private final CallGraph callGraph;
+
+    // Arrays of literals passed as varargs, allocated once at the start of the current method
+    private final Map<String, String> constantVarargs;
+    private final StringBuilder constantVarargsCode;
+
+    // Summaries of the methods of the class, empty when not optimizing
+    private final Map<String, MethodSummary> summaries;
+
+    // Temporaries of the current method
+    private final OllirTemps temps;
+
+    public OllirExprGeneratorVisitor(SymbolTable table, CallGraph callGraph, Map<String, MethodSummary> summaries,
+                                     OllirTemps temps) {
         this.table = table;
+        this.callGraph = callGraph;
+        this.summaries = summaries;
+        this.temps = temps;
+        this.constantVarargs = new HashMap<>();
+        this.constantVarargsCode = new StringBuilder();
+    }
+
+    /**
+     * Returns the code that allocates the constant varargs arrays used in the method that was just generated, and
+     * clears them for the next method. The code must be placed at the start of the method.
+     *
+     * @return
+     */
+    public String takeConstantVarargs() {
+        var code = constantVarargsCode.toString();
+        constantVarargs.clear();
+        constantVarargsCode.setLength(0);
+        return code;
     }
 
     @Override
@@ -60,7 +98,7 @@ public class OllirExprGeneratorVisitor extends PreorderJmmVisitor<Void, OllirExp
         OllirExprResult operandResult = visit(operandNode);
 
         // Generate a temporary variable to store the result of the unary operation
-        String temp = OptUtils.getTemp();
+        String temp = temps.getTemp();
         Type operandType = TypeUtils.getExprType(operandNode, table);
         String operandOllirType = OptUtils.toOllirType(operandType);
 
@@ -99,51 +137,210 @@ public class OllirExprGeneratorVisitor extends PreorderJmmVisitor<Void, OllirExp
         var arrayNode = arrayAccessExpr.getJmmChild(0);
         var arrayIndex = arrayAccessExpr.getJmmChild(1);
 
-        //var arrayNodeResult = visit(arrayNode);
+        var arrayNodeResult = visit(arrayNode);
         var arrayIndexResult = visit(arrayIndex);
 
+        computation.append(arrayNodeResult.getComputation());
         computation.append(arrayIndexResult.getComputation());
 
-        if(arrayAccessExpr.getParent().getChildren().get(0).equals(arrayAccessExpr)){
-            // a[0.i32].i32
-            code.append(arrayNode.get("name")).append('[').append(arrayIndexResult.getCode()).append(']').append(".i32");
+        // a[i.i32].i32, the array reference is named by its operand without the type suffix
+        var arrayName = OptUtils.getOperandName(arrayNodeResult.getCode());
+        var access = arrayName + "[" + arrayIndexResult.getCode() + "]" + ".i32";
+
+        if(keepsArrayOperand(arrayAccessExpr)){
+            // The backend loads array reference and index straight onto the stack, no need for a temporary
+            code.append(access);
         }else {
 
-            var temp = OptUtils.getTemp();
+            var temp = temps.getTemp();
 
-            computation.append(temp).append(".i32").append(SPACE).append(ASSIGN).append(".i32").append(SPACE).append(arrayNode.get("name")).append("[")
-                    .append(arrayIndexResult.getCode()).append("]").append(".i32").append(END_STMT);
+            computation.append(temp).append(".i32").append(SPACE).append(ASSIGN).append(".i32").append(SPACE)
+                    .append(access).append(END_STMT);
 
             code.append(temp).append(".i32");
+        }
+
+        return new OllirExprResult(code.toString(), computation.toString());
+    }
+
+    /**
+     * Array accesses can be used directly as operands of assignments and binary operations; everywhere else
+     * (call arguments, returns, conditions) they must be spilled to a temporary.
+     * <p>
+     * An operand is only read by the instruction that uses it, after the computation of every other operand. The left
+     * operand of a binary operation is therefore only kept if the right one is computed without side effects, which
+     * could otherwise change the element before it is read (e.g. a[0] + o.set(a)).
+     *
+     * @param arrayAccessExpr
+     * @return true if the access can be kept as an array operand
+     */
+    private boolean keepsArrayOperand(JmmNode arrayAccessExpr) {
+        var parent = arrayAccessExpr.getParent();
+        if (parent.isInstance(ASSIGN_STMT)) {
+            return true;
+        }
 
+        if (!parent.isInstance(BINARY_EXPR)) {
+            return false;
+        }
+
+        return parent.getJmmChild(1) == arrayAccessExpr || isReadOnly(parent.getJmmChild(1));
+    }
 
+    /**
+     * @param expr
+     * @return true if the expression only reads literals, variables and array elements, so evaluating it cannot change
+     * the value of any other expression (calls and allocations are never read-only)
+     */
+    private static boolean isReadOnly(JmmNode expr) {
+        if (expr.isInstance(PAREN_EXPR) || expr.isInstance(ARRAY_ACCESS_EXPR) || expr.isInstance(LENGTH_EXPR) ||
+                expr.isInstance(BINARY_EXPR) || expr.isInstance(UNARY_OP_EXPR)) {
+            return expr.getChildren().stream().allMatch(OllirExprGeneratorVisitor::isReadOnly);
         }
 
-        return new OllirExprResult(code.toString(), computation.toString());
+        return expr.isInstance(INTEGER_LITERAL) || expr.isInstance(BOOLEAN_LITERAL) ||
+                expr.isInstance(VAR_REF_EXPR) || expr.isInstance(THIS_EXPR);
     }
 
     private OllirExprResult visitNewArrayExpr(JmmNode newArrayExpr, Void unused){
-        throw new NotImplementedException("Not implemented yet");
+        List<OllirExprResult> elements = new ArrayList<>();
+        for (var element : newArrayExpr.getChildren())
+            elements.add(visit(element));
+
+        return buildArray(elements);
+    }
+
+    /**
+     * Allocates an array with exactly the size of the given elements and stores them in it.
+     *
+     * @param elements
+     * @return
+     */
+    private OllirExprResult buildArray(List<OllirExprResult> elements) {
+        StringBuilder computation = new StringBuilder();
+        String arrayType = ".array.i32";
+        String temp = temps.getTemp();
+
+        elements.forEach(element -> computation.append(element.getComputation()));
+
+        computation.append(temp).append(arrayType).append(SPACE).append(ASSIGN).append(arrayType).append(SPACE)
+                .append("new(array, ").append(elements.size()).append(".i32)").append(arrayType).append(END_STMT);
+
+        for (int i = 0; i < elements.size(); i++) {
+            computation.append(temp).append("[").append(i).append(".i32].i32").append(SPACE)
+                    .append(ASSIGN).append(".i32").append(SPACE).append(elements.get(i).getCode()).append(END_STMT);
+        }
+
+        return new OllirExprResult(temp + arrayType, computation);
+    }
+
+    /**
+     * Generates the arguments of a method call, with the arguments of a sequence parameter already packed.
+     *
+     * @param methodCallExpr
+     * @return
+     */
+    public List<OllirExprResult> visitArguments(JmmNode methodCallExpr) {
+        List<OllirExprResult> results = new ArrayList<>();
+        // Calculate Params
+        for(int i = 1; i < methodCallExpr.getNumChildren(); ++i)
+            results.add(visit(methodCallExpr.getJmmChild(i)));
+
+        return packVarargs(methodCallExpr, results);
+    }
+
+    /**
+     * Packs the arguments given to the sequence parameter (int...) of a method of this class into an array.
+     * <p>
+     * If every packed argument is a literal and the method only reads the sequence, the array is allocated once per
+     * method of the caller and reused by every call, instead of being allocated on every call.
+     *
+     * @param methodCallExpr
+     * @param results        the results of the arguments of the call
+     * @return the arguments to use in the call
+     */
+    private List<OllirExprResult> packVarargs(JmmNode methodCallExpr, List<OllirExprResult> results) {
+        var methodName = methodCallExpr.get("name");
+        if (!JmmSymbolTable.of(table).hasMethod(methodName))
+            return results;
+
+        // An override in another class could mutate or keep the array, so only statically bound calls share it. This
+        // assumes no class compiled separately extends this one (see CallGraphBuilder.build)
+        var isBound = callGraph.isStaticallyBound(methodCallExpr);
+
+        var params = table.getParameters(methodName);
+        if (!OptUtils.hasVarargs(params))
+            return results;
+
+        int seqIndex = params.size() - 1;
+
+        // An array passed directly as the sequence does not need to be packed
+        if (results.size() == params.size()) {
+            var lastType = TypeUtils.getExprType(methodCallExpr.getJmmChild(results.size()), table);
+            if (lastType != null && lastType.isArray())
+                return results;
+        }
+
+        List<OllirExprResult> args = new ArrayList<>(results.subList(0, seqIndex));
+        var seqArgs = results.subList(seqIndex, results.size());
+        var seqNodes = methodCallExpr.getChildren().subList(seqIndex + 1, methodCallExpr.getNumChildren());
+
+        var isConstant = seqNodes.stream().allMatch(node -> node.isInstance(INTEGER_LITERAL));
+        if (isConstant && isBound && isReadOnlySeq(methodName, params.get(seqIndex).getName())) {
+            args.add(getConstantVarargs(seqArgs));
+        } else {
+            args.add(buildArray(seqArgs));
+        }
+
+        return args;
+    }
+
+    private boolean isReadOnlySeq(String methodName, String seqName) {
+        return callGraph.getMethodDecl(methodName)
+                .map(method -> OptUtils.isReadOnlyParam(method, seqName))
+                .orElse(false);
+    }
+
+    private OllirExprResult getConstantVarargs(List<OllirExprResult> literals) {
+        var key = literals.stream().map(OllirExprResult::getCode).collect(Collectors.joining(", "));
+
+        var arrayCode = constantVarargs.get(key);
+        if (arrayCode == null) {
+            var array = buildArray(literals);
+            constantVarargsCode.append(array.getComputation());
+            arrayCode = array.getCode();
+            constantVarargs.put(key, arrayCode);
+        }
+
+        return new OllirExprResult(arrayCode);
     }
 
     private OllirExprResult visitMethodCallExpr(JmmNode methodCallExpr, Void unused) {
+        var constant = getConstantCall(methodCallExpr);
+        if (constant != null) {
+            return constant;
+        }
+
         // check if method is imported and if so use invokestatic
         StringBuilder computation = new StringBuilder();
         StringBuilder code = new StringBuilder();
-        var methodReturnType = table.getReturnType(methodCallExpr.get("name"));
+        var methodReturnType = TypeUtils.getExprType(methodCallExpr, table);
         var methodReturnOllirType = OptUtils.toOllirType(methodReturnType);
         var source = methodCallExpr.getJmmChild(0);
         var sourceCode = visit(source);
 
-        List<OllirExprResult> results = new ArrayList<>();
-        // Calculate Params
-        for(int i = 1; i < methodCallExpr.getNumChildren(); ++i)
-            results.add(visit(methodCallExpr.getJmmChild(i)));
+        var results = visitArguments(methodCallExpr);
 
         computation.append(sourceCode.getComputation());
         results.forEach(result -> computation.append(result.getComputation()));
 
-        if(OptUtils.isImport(methodReturnType.getName(), table)){
+        // Methods called on an imported class are static, and have a return type if the class was found
+        var isStatic = OptUtils.resolve(source, table)
+                .map(resolved -> resolved.scope() == SymbolScope.IMPORT)
+                .orElse(false);
+
+        if(OptUtils.isImport(methodReturnType.getName(), table)
+                || (isStatic && methodReturnType.getName().equals("void"))){
             computation.append("invokestatic(");
             computation.append(sourceCode.getCode());
             computation.append(", \"");
@@ -153,14 +350,14 @@ public class OllirExprGeneratorVisitor extends PreorderJmmVisitor<Void, OllirExp
             computation.append(").V");
             computation.append(END_STMT);
         }else {
-            var temp = OptUtils.getTemp();
+            var temp = temps.getTemp();
             computation.append(temp);
             computation.append(methodReturnOllirType);
             computation.append(SPACE);
             computation.append(ASSIGN);
             computation.append(methodReturnOllirType);
             computation.append(SPACE);
-            computation.append("invokevirtual(");
+            computation.append(isStatic ? "invokestatic(" : "invokevirtual(");
             computation.append(sourceCode.getCode());
             computation.append(", \"");
             computation.append(methodCallExpr.get("name"));
@@ -180,6 +377,60 @@ public class OllirExprGeneratorVisitor extends PreorderJmmVisitor<Void, OllirExp
     }
 
 
+    /**
+     * Replaces a call by the constant its method always returns, when the call cannot have any effect: the method is
+     * pure and total, the receiver is this, and the arguments are evaluated without side effects.
+     *
+     * @param methodCallExpr
+     * @return the constant, or null if the call must be kept
+     */
+    private OllirExprResult getConstantCall(JmmNode methodCallExpr) {
+        // An override in a class compiled separately could return something else, see CallGraphBuilder.build
+        if (!callGraph.isStaticallyBound(methodCallExpr)) {
+            return null;
+        }
+
+        var summary = summaries.get(methodCallExpr.get("name"));
+        if (summary == null || !summary.isPure() || !summary.isTotal() || summary.getConstantReturn().isEmpty()) {
+            return null;
+        }
+
+        // A call on a variable throws if it is null, so only calls on this, which never is, can be removed
+        var receiver = methodCallExpr.getJmmChild(0);
+        while (receiver.isInstance(PAREN_EXPR)) {
+            receiver = receiver.getJmmChild(0);
+        }
+        if (!receiver.isInstance(THIS_EXPR)) {
+            return null;
+        }
+
+        var args = methodCallExpr.getChildren().subList(1, methodCallExpr.getNumChildren());
+        if (!args.stream().allMatch(OllirExprGeneratorVisitor::isSideEffectFree)) {
+            return null;
+        }
+
+        if (methodCallExpr.getParent().isInstance(EXPR_STMT)) {
+            return OllirExprResult.EMPTY;
+        }
+
+        var value = summary.getConstantReturn().get();
+        var returnType = table.getReturnType(methodCallExpr.get("name"));
+        if (TypeUtils.getBooleanTypeName().equals(returnType.getName())) {
+            value = value.equals("true") ? "1" : "0";
+        }
+
+        return new OllirExprResult(value + OptUtils.toOllirType(returnType));
+    }
+
+    private static boolean isSideEffectFree(JmmNode expr) {
+        while (expr.isInstance(PAREN_EXPR)) {
+            expr = expr.getJmmChild(0);
+        }
+
+        return expr.isInstance(INTEGER_LITERAL) || expr.isInstance(BOOLEAN_LITERAL) ||
+                expr.isInstance(VAR_REF_EXPR) || expr.isInstance(THIS_EXPR);
+    }
+
     private OllirExprResult visitLengthExpr(JmmNode lengthExpr, Void unused) {
 
         StringBuilder computation = new StringBuilder();
@@ -189,7 +440,7 @@ public class OllirExprGeneratorVisitor extends PreorderJmmVisitor<Void, OllirExp
         var arrayResult = visit(arrayNode);
 
         // Generate a temporary variable for the length result
-        String temp = OptUtils.getTemp();
+        String temp = temps.getTemp();
         String lengthOllirType = ".i32";
 
         computation.append(arrayResult.getComputation());
@@ -215,7 +466,7 @@ public class OllirExprGeneratorVisitor extends PreorderJmmVisitor<Void, OllirExp
         System.out.println(newArraySizeExpr.getJmmChild(0));
 
         // Generate a temporary variable for the array
-        String temp = OptUtils.getTemp();
+        String temp = temps.getTemp();
         String arrayType = ".array" + OptUtils.toOllirType(TypeUtils.getExprType(newArraySizeExpr, table));
 
 
@@ -236,9 +487,9 @@ public class OllirExprGeneratorVisitor extends PreorderJmmVisitor<Void, OllirExp
     private OllirExprResult visitNewClassExpr(JmmNode newClassExpr, Void unused) {
         StringBuilder computation = new StringBuilder();
         StringBuilder code = new StringBuilder();
-        var temp = OptUtils.getTemp();
+        var temp = temps.getTemp();
         var classReturnType = newClassExpr.get("name");
-        var classReturnOllirType = OptUtils.toOllirType(new Type(classReturnType, false));
+        var classReturnOllirType = OptUtils.toOllirType(TypeUtils.getType(classReturnType, false));
 
 
         computation.append(temp);
@@ -269,45 +520,79 @@ public class OllirExprGeneratorVisitor extends PreorderJmmVisitor<Void, OllirExp
 
     private OllirExprResult visitBinExpr(JmmNode binExpr, Void unused) {
 
-        var lhs = visit(binExpr.getJmmChild(0));
-        var rhs = visit(binExpr.getJmmChild(1));
+        var operation = visitBinOperation(binExpr);
 
         StringBuilder computation = new StringBuilder();
 
         // code to compute the children
-        computation.append(lhs.getComputation());
-        computation.append(rhs.getComputation());
+        computation.append(operation.getComputation());
 
         // code to compute self
         Type resType = TypeUtils.getExprType(binExpr, table);
         String resOllirType = OptUtils.toOllirType(resType);
-        String code = OptUtils.getTemp() + resOllirType;
+        String code = temps.getTemp() + resOllirType;
 
         computation.append(code).append(SPACE)
                 .append(ASSIGN).append(resOllirType).append(SPACE)
-                .append(lhs.getCode()).append(SPACE);
+                .append(operation.getCode()).append(END_STMT);
+
+        return new OllirExprResult(code, computation);
+    }
+
+    /**
+     * Generates the operation of a binary expression (e.g. a.i32 +.i32 b[i.i32].i32) without assigning it to a
+     * temporary.
+     *
+     * @param binExpr
+     * @return the operation as code, and the computation of its operands
+     */
+    private OllirExprResult visitBinOperation(JmmNode binExpr) {
+
+        var lhs = visit(binExpr.getJmmChild(0));
+        var rhs = visit(binExpr.getJmmChild(1));
+
+        StringBuilder computation = new StringBuilder();
+
+        // code to compute the children
+        computation.append(lhs.getComputation());
+        computation.append(rhs.getComputation());
 
         Type type = TypeUtils.getExprType(binExpr, table);
-        computation.append(binExpr.get("op")).append(OptUtils.toOllirType(type)).append(SPACE)
-                .append(rhs.getCode()).append(END_STMT);
+        String code = lhs.getCode() + SPACE + binExpr.get("op") + OptUtils.toOllirType(type) + SPACE + rhs.getCode();
 
         return new OllirExprResult(code, computation);
     }
 
+    /**
+     * Visits the right-hand side of an assignment. A binary operation is assigned directly to the destination
+     * instead of going through a temporary, which lets the backend see patterns like a[i] = a[i] + 1 in a single
+     * instruction.
+     *
+     * @param rhsNode
+     * @return
+     */
+    public OllirExprResult visitAssignRhs(JmmNode rhsNode) {
+        if (rhsNode.isInstance(BINARY_EXPR)) {
+            return visitBinOperation(rhsNode);
+        }
+
+        return visit(rhsNode);
+    }
+
     private OllirExprResult visitThisExpr(JmmNode thisExpr, Void unused){
         //throw new NotImplementedException("Not implemented yet");
         return new OllirExprResult("this", "");
     }
 
     private OllirExprResult visitIntegerLiteral(JmmNode integerLiteral, Void unused) {
-        var intType = new Type(TypeUtils.getIntTypeName(), false);
+        var intType = TypeUtils.getIntType();
         String ollirIntType = OptUtils.toOllirType(intType);
         String code = integerLiteral.get("value") + ollirIntType;
         return new OllirExprResult(code);
     }
 
     private OllirExprResult visitBooleanLiteral(JmmNode booleanLiteral, Void unused) {
-        var booleanType = new Type(TypeUtils.getBooleanTypeName(), false);
+        var booleanType = TypeUtils.getBooleanType();
         String ollirIntType = OptUtils.toOllirType(booleanType);
         String code = (booleanLiteral.get("value").equals("true") ? 1 : 0) + ollirIntType;
         return new OllirExprResult(code);
@@ -320,27 +605,22 @@ public class OllirExprGeneratorVisitor extends PreorderJmmVisitor<Void, OllirExp
     private OllirExprResult visitVarRef(JmmNode varRef, Void unused) {
         StringBuilder computation = new StringBuilder();
         StringBuilder code = new StringBuilder();
-        var method_parent = varRef.getAncestor(METHOD_DECL);
-        if(OptUtils.isImport(varRef.get("name"), table)){
+        var resolved = OptUtils.resolve(varRef, table);
+        var scope = resolved.map(ResolvedSymbol::scope).orElse(null);
+        if(scope == SymbolScope.IMPORT){
             code.append(varRef.get("name"));
-        }else if(method_parent.isPresent() &&
-                (OptUtils.isLocalVar(varRef, method_parent.get().get("name"), table) ||
-                        OptUtils.isParam(varRef, method_parent.get().get("name"), table))) {
-            var localOrParam = OptUtils.getLocalOrParam(varRef, table);
-            Type type = new Type("void", false);
-            if(localOrParam != null)
-                type = localOrParam.getType();
+        }else if(scope == SymbolScope.LOCAL || scope == SymbolScope.PARAM) {
+            Type type = resolved.get().symbol().getType();
 
             var ollirType = OptUtils.toOllirType(type);
             if(type.isArray()) ollirType = ".array" + ollirType;
             code.append(varRef.get("name"));
             code.append(ollirType);
-        } else if(OptUtils.isField(varRef, table)){
-            var temp = OptUtils.getTemp();
-            var field = OptUtils.getField(varRef, table);
-            assert field != null;
-            var type = field.getType();
+        } else if(scope == SymbolScope.FIELD){
+            var temp = temps.getTemp();
+            var type = resolved.get().symbol().getType();
             var ollirType = OptUtils.toOllirType(type);
+            if(type.isArray()) ollirType = ".array" + ollirType;
             computation.append(temp);
             computation.append(ollirType);
             computation.append(SPACE);
@@ -2,20 +2,27 @@ package pt.up.fe.comp2024.optimization;
 
 import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
 import pt.up.fe.comp.jmm.analysis.table.Type;
-import pt.up.fe.comp.jmm.ast.AJmmVisitor;
 import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp2024.ast.KindVisitor;
 import pt.up.fe.comp2024.ast.NodeUtils;
+import pt.up.fe.comp2024.callgraph.CallGraph;
+import pt.up.fe.comp2024.callgraph.MethodSummary;
 import pt.up.fe.comp2024.ast.TypeUtils;
+import pt.up.fe.comp2024.symboltable.JmmSymbolTable;
+import pt.up.fe.comp2024.symboltable.SymbolScope;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 
 import static pt.up.fe.comp2024.ast.Kind.*;
 
 /**
  * Generates OLLIR code from JmmNodes that are not expressions.
  */
-public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
+public class OllirGeneratorVisitor extends KindVisitor<Void, String> {
 
     private static final String SPACE = " ";
     private static final String IMPORT = "import";
@@ -31,13 +38,30 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
 
     private final SymbolTable table;
 
+    private final CallGraph callGraph;
+
+    private final Map<String, MethodSummary> summaries;
+
+    // Generate the methods of the class in parallel
+    private final boolean parallel;
+
+    // Temporaries of the current method, numbered from 0 in each method
+    private final OllirTemps temps;
+
     private final OllirExprGeneratorVisitor exprVisitor;
 
+    // Label at the start of the current method, target of its self-recursive tail calls (null if there are none)
+    private String tailCallLabel;
 
 
-    public OllirGeneratorVisitor(SymbolTable table) {
+    public OllirGeneratorVisitor(SymbolTable table, CallGraph callGraph, Map<String, MethodSummary> summaries,
+                                 boolean parallel) {
         this.table = table;
-        exprVisitor = new OllirExprGeneratorVisitor(table);
+        this.callGraph = callGraph;
+        this.summaries = summaries;
+        this.parallel = parallel;
+        this.temps = new OllirTemps();
+        exprVisitor = new OllirExprGeneratorVisitor(table, callGraph, summaries, temps);
     }
 
 
@@ -75,15 +99,11 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
 
         var method = node.getAncestor(METHOD_DECL);
 
-        if(OptUtils.isField(lhsNode, table) &&
-                method.isPresent() &&
-                !OptUtils.isLocalVar(lhsNode, method.get().get("name"), table) &&
-                !OptUtils.isParam(lhsNode, method.get().get("name"), table)) {
+        var lhsSymbol = OptUtils.resolve(lhsNode, table);
+        if(method.isPresent() &&
+                lhsSymbol.isPresent() && lhsSymbol.get().scope() == SymbolScope.FIELD) {
 
-            var field = OptUtils.getField(lhsNode, table);
-            //TODO: VERIFY
-            assert field != null;
-            var type = field.getType();
+            var type = lhsSymbol.get().symbol().getType();
             var ollirType = OptUtils.toOllirType(type);
 
             var rhs = exprVisitor.visit(rhsNode);
@@ -104,7 +124,7 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
         }
 
         var lhs = exprVisitor.visit(lhsNode);
-        var rhs = exprVisitor.visit(rhsNode);
+        var rhs = exprVisitor.visitAssignRhs(rhsNode);
 
 
         // code to compute the children
@@ -137,6 +157,10 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
 
     private String visitReturn(JmmNode node, Void unused) {
 
+        if (tailCallLabel != null && isSelfTailCall(node)) {
+            return visitTailCall(node.getJmmChild(0));
+        }
+
         StringBuilder code = new StringBuilder();
         var expr = node.getJmmChild(0);
         var exprType = ".V";
@@ -160,6 +184,86 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
     }
 
 
+    /**
+     * Tests if the return statement returns a call of the method it is in, on the same object
+     * (e.g. return this.fac(n - 1);), and the call cannot reach an override of the method.
+     *
+     * @param returnStmt
+     * @return
+     */
+    private boolean isSelfTailCall(JmmNode returnStmt) {
+        if (returnStmt.getNumChildren() == 0)
+            return false;
+
+        var expr = returnStmt.getJmmChild(0);
+        if (!expr.isInstance(METHOD_CALL_EXPR) || !expr.getJmmChild(0).isInstance(THIS_EXPR))
+            return false;
+
+        // The jump skips dynamic dispatch, which is only sound if no class compiled separately overrides the method
+        var method = returnStmt.getAncestor(METHOD_DECL);
+        return method.isPresent() &&
+                callGraph.isStaticallyBound(expr) &&
+                !NodeUtils.getBooleanAttribute(method.get(), "isStatic", "false") &&
+                method.get().get("name").equals(expr.get("name"));
+    }
+
+    /**
+     * A self-recursive call in tail position becomes a loop: the arguments are assigned to the parameters and the
+     * method jumps back to its start, instead of growing the stack with a new call.
+     *
+     * @param methodCallExpr
+     * @return
+     */
+    private String visitTailCall(JmmNode methodCallExpr) {
+        StringBuilder code = new StringBuilder();
+
+        var params = table.getParameters(methodCallExpr.get("name"));
+        var args = exprVisitor.visitArguments(methodCallExpr);
+
+        args.forEach(arg -> code.append(arg.getComputation()));
+
+        // every argument is evaluated before any parameter is overwritten, e.g. gcd(b, a % b)
+        List<String> values = new ArrayList<>();
+        for (int i = 0; i < params.size(); i++) {
+            var param = params.get(i);
+            var argCode = args.get(i).getCode();
+            var ollirType = getOllirType(param.getType());
+
+            // only arguments that read a parameter can be clobbered by the assignments
+            var argName = OptUtils.getOperandName(argCode);
+            if (argName.equals(param.getName()) || params.stream().noneMatch(p -> p.getName().equals(argName))) {
+                values.add(argCode);
+                continue;
+            }
+
+            var temp = temps.getTemp() + ollirType;
+            code.append(temp).append(SPACE).append(ASSIGN).append(ollirType).append(SPACE)
+                    .append(argCode).append(END_STMT);
+            values.add(temp);
+        }
+
+        for (int i = 0; i < params.size(); i++) {
+            var param = params.get(i);
+            var ollirType = getOllirType(param.getType());
+            var paramCode = param.getName() + ollirType;
+
+            if (values.get(i).equals(paramCode))
+                continue;
+
+            code.append(paramCode).append(SPACE).append(ASSIGN).append(ollirType).append(SPACE)
+                    .append(values.get(i)).append(END_STMT);
+        }
+
+        code.append("goto ").append(tailCallLabel).append(END_STMT);
+
+        return code.toString();
+    }
+
+    private String getOllirType(Type type) {
+        var ollirType = OptUtils.toOllirType(type);
+        return type.isArray() ? ".array" + ollirType : ollirType;
+    }
+
     private String visitParam(JmmNode param, Void unused) {
         var type = param.getJmmChild(0);
         var typeCode = OptUtils.toOllirType(type);
@@ -209,6 +313,9 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
         }
         // name
         var name = node.get("name");
+        if (OptUtils.hasVarargs(table.getParameters(name))) {
+            code.append("varargs ");
+        }
         code.append(name);
 
         int paramCurr = 0;
@@ -235,9 +342,21 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
         code.append(L_BRACKET);
 
 
+        boolean hasTailCall = node.getDescendants(RETURN_STMT).stream().anyMatch(this::isSelfTailCall);
+        tailCallLabel = hasTailCall ? temps.getTemp("tailcall") : null;
+
         // rest of its children stmts
+        StringBuilder body = new StringBuilder();
         for (int i = paramCurr; i < node.getNumChildren(); i++)
-            code.append(visit(node.getJmmChild(i)));
+            body.append(visit(node.getJmmChild(i)));
+
+        // constant varargs arrays used by the body are allocated once, before any statement
+        code.append(exprVisitor.takeConstantVarargs());
+        if (tailCallLabel != null) {
+            code.append(tailCallLabel).append(":").append(NL);
+        }
+        code.append(body);
+        tailCallLabel = null;
 
         // if(!node.getJmmChild(node.getNumChildren()-1).isInstance(RETURN_STMT)) {
         if(node.getChildren(RETURN_STMT).isEmpty()) {
@@ -272,8 +391,15 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
         code.append(NL);
         var needNl = true;
 
+        // Each method is generated by its own visitor, so they share no state and can be generated in any order
+        var methods = node.getChildren(METHOD_DECL);
+        var methodCode = (parallel ? methods.parallelStream() : methods.stream())
+                .map(method -> new OllirGeneratorVisitor(table, callGraph, summaries, false).visit(method))
+                .toList()
+                .iterator();
+
         for (var child : node.getChildren()) {
-            var result = visit(child);
+            var result = METHOD_DECL.check(child) ? methodCode.next() : visit(child);
 
             if (METHOD_DECL.check(child) && needNl) {
                 code.append(NL);
@@ -309,18 +435,10 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
     }
 
     private Type getVarType(String v, String method){
-        if(method != null){
-            for(var lVar : table.getLocalVariables(method))
-                if(lVar.getName().equals(v))
-                    return lVar.getType();
-            for(var lParam : table.getParameters(method))
-                if(lParam.getName().equals(v))
-                    return lParam.getType();
-        }
-        for(var lField : table.getFields())
-            if(lField.getName().equals(v))
-                return lField.getType();
-        return null;
+        return JmmSymbolTable.of(table).resolve(method, v)
+                .filter(resolved -> resolved.scope() != SymbolScope.IMPORT)
+                .map(resolved -> resolved.symbol().getType())
+                .orElse(null);
     }
 
     private String visitVarDecl(JmmNode varDecl, Void unused) {
@@ -352,7 +470,7 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
 
 
         // Generate unique labels for the start and end of the while loop
-        String temp = OptUtils.getTemp();
+        String temp = temps.getTemp();
         String whileCondLabel = "whileCond" + temp;
         String whileLoopLabel = "whileLoop" + temp;
         String whileEndLabel = "whileEnd" + temp;
@@ -398,7 +516,7 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
 
     private String visitIfElseStmt(JmmNode ifElseStmt, Void unused) {
 
-        String temp = OptUtils.getTemp();
+        String temp = temps.getTemp();
         String ifStmt = "if" + temp;
         String ifStmtEnd = "endif" + temp;
 
@@ -424,6 +542,7 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
         code.append("\t").append(ifStmt).append(":").append(NL);
         code.append("\t").append(bodyResult).append(NL);
         code.append("\tgoto ").append(ifStmtEnd).append(";").append(NL);
+        code.append(ifStmtEnd).append(":").append(NL);
 
 
         System.out.println(code);
@@ -0,0 +1,20 @@
+package pt.up.fe.comp2024.optimization;
+
+/**
+ * Names of the temporaries of a method, numbered from 0 in each method, so methods can be generated independently of
+ * each other and in any order.
+ */
+public class OllirTemps {
+
+    private int nextNumber = 0;
+
+    public String getTemp() {
+
+        return getTemp("tmp");
+    }
+
+    public String getTemp(String prefix) {
+
+        return prefix + nextNumber++;
+    }
+}
@@ -5,26 +5,23 @@ import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
 import pt.up.fe.comp.jmm.analysis.table.Type;
 import pt.up.fe.comp.jmm.ast.JmmNode;
 import pt.up.fe.comp2024.ast.TypeUtils;
+import pt.up.fe.comp2024.symboltable.JmmSymbolTable;
+import pt.up.fe.comp2024.symboltable.ResolvedSymbol;
+import pt.up.fe.comp2024.symboltable.SymbolBinder;
+
+import java.util.List;
+import java.util.Optional;
 
 import static pt.up.fe.comp2024.ast.Kind.*;
 
 public class OptUtils {
-    private static int tempNumber = -1;
-
-    public static String getTemp() {
-
-        return getTemp("tmp");
-    }
-
-    public static String getTemp(String prefix) {
-
-        return prefix + getNextTempNum();
-    }
-
-    public static int getNextTempNum() {
-
-        tempNumber += 1;
-        return tempNumber;
+    /**
+     * @param operandCode an OLLIR operand, e.g. a.array.i32
+     * @return the name of the operand without its type, e.g. a
+     */
+    public static String getOperandName(String operandCode) {
+        var dot = operandCode.indexOf('.');
+        return dot == -1 ? operandCode : operandCode.substring(0, dot);
     }
 
     public static String toOllirType(JmmNode typeNode) {
@@ -45,6 +42,7 @@ public class OptUtils {
        return "." + switch (typeName) {
             case "int" -> "i32";
             case "boolean" -> "bool";
+            case "int..." -> "array.i32";
             case "void", "IMPORTED_TYPE" -> "V";
             default -> typeName;
 //            default -> (getTemp ? (getTemp() + '.') : "") + typeName;
@@ -55,48 +53,80 @@ public class OptUtils {
     public static boolean isParam(JmmNode node, String method, SymbolTable table) {
         if(!node.isInstance(VAR_REF_EXPR))
             return false;
-        for(var param : table.getParameters(method))
-            if(param.getName().equals(node.get("name")))
-                return true;
-
-        return false;
+        return JmmSymbolTable.of(table).getParameter(method, node.get("name")).isPresent();
     }
 
     public static boolean isLocalVar(JmmNode node, String method, SymbolTable table) {
         if(!node.isInstance(VAR_REF_EXPR))
             return false;
-        for(var localVar : table.getLocalVariables(method))
-            if(localVar.getName().equals(node.get("name")))
-                return true;
-
-        return false;
+        return JmmSymbolTable.of(table).getLocalVariable(method, node.get("name")).isPresent();
     }
 
     public static boolean isImport(String type, SymbolTable table){
         if(type.equals(TypeUtils.getImportedTypeName()))
             return true;
-        for(var i : table.getImports())
-            if(i.equals(type))
-                return true;
-        return false;
+        return JmmSymbolTable.of(table).isImport(type);
     }
 
     public static boolean isField(JmmNode node, SymbolTable table) {
         if(!node.isInstance(VAR_REF_EXPR))
             return false;
-        for(var field : table.getFields())
-            if(field.getName().equals(node.get("name")))
-                return true;
-        return false;
+        return JmmSymbolTable.of(table).getField(node.get("name")).isPresent();
     }
 
     public static Symbol getField(JmmNode node, SymbolTable table) {
         if(!node.isInstance(VAR_REF_EXPR))
             return null;
-        for(var field : table.getFields())
-            if(field.getName().equals(node.get("name")))
-                return field;
-        return null;
+        return JmmSymbolTable.of(table).getField(node.get("name")).orElse(null);
+    }
+
+    /**
+     * @param params
+     * @return true if the last parameter is a sequence (int...)
+     */
+    public static boolean hasVarargs(List<Symbol> params) {
+        return !params.isEmpty() &&
+                params.get(params.size() - 1).getType().getName().equals(TypeUtils.getIntSeqTypeName());
+    }
+
+    /**
+     * Tests if a parameter of the given method is only read, i.e. it is only indexed (without being assigned) or has
+     * its length taken. Such a parameter cannot be mutated or leak out of the method.
+     *
+     * @param methodDecl
+     * @param paramName
+     * @return
+     */
+    public static boolean isReadOnlyParam(JmmNode methodDecl, String paramName) {
+        for (var varRef : methodDecl.getDescendants(VAR_REF_EXPR)) {
+            if (!varRef.get("name").equals(paramName))
+                continue;
+
+            var parent = varRef.getParent();
+            if (parent.isInstance(LENGTH_EXPR))
+                continue;
+
+            var isIndexed = parent.isInstance(ARRAY_ACCESS_EXPR) && parent.getJmmChild(0) == varRef;
+            var isAssigned = parent.getParent().isInstance(ASSIGN_STMT) && parent.getParent().getJmmChild(0) == parent;
+            if (isIndexed && !isAssigned)
+                continue;
+
+            return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * @param varRef
+     * @param table
+     * @return the declaration the variable reference was bound to, or that its name resolves to if it was not bound
+     */
+    public static Optional<ResolvedSymbol> resolve(JmmNode varRef, SymbolTable table) {
+        if(!varRef.isInstance(VAR_REF_EXPR))
+            return Optional.empty();
+
+        return SymbolBinder.resolve(varRef, table);
     }
 
     public static Symbol getLocalOrParam(JmmNode node, SymbolTable table) {
@@ -106,13 +136,10 @@ public class OptUtils {
         if(!node.isInstance(VAR_REF_EXPR))
             return null;
         var methodName = methodNode.get().get("name");
-        for(var param : table.getParameters(methodName))
-            if(param.getName().equals(node.get("name")))
-                return param;
-        for(var localVar : table.getLocalVariables(methodName))
-            if(localVar.getName().equals(node.get("name")))
-                return localVar;
-        return null;
+        var jmmTable = JmmSymbolTable.of(table);
+        return jmmTable.getParameter(methodName, node.get("name"))
+                .or(() -> jmmTable.getLocalVariable(methodName, node.get("name")))
+                .orElse(null);
     }
 
 }
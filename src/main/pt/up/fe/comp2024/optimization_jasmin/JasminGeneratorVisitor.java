@@ -1,8 +1,8 @@
 package pt.up.fe.comp2024.optimization_jasmin;
 
 import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
-import pt.up.fe.comp.jmm.ast.AJmmVisitor;
 import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp2024.ast.KindVisitor;
 import pt.up.fe.specs.util.SpecsCheck;
 import pt.up.fe.specs.util.utilities.StringLines;
 
@@ -10,7 +10,7 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.stream.Collectors;
 
-public class JasminGeneratorVisitor extends AJmmVisitor<Void, String> {
+public class JasminGeneratorVisitor extends KindVisitor<Void, String> {
 
     private static final String NL = "\n";
     private static final String TAB = "   ";
@@ -37,6 +37,7 @@ public class JasminGeneratorVisitor extends AJmmVisitor<Void, String> {
     protected void buildVisitor() {
         // Using strings to avoid compilation problems in projects that
         // might no longer have the equivalent enums in Kind class.
+        // KindVisitor still dispatches them by Kind id when they are in Kind.
         addVisit("Program", this::visitProgram);
         addVisit("ClassDecl", this::visitClassDecl);
         addVisit("MethodDecl", this::visitMethodDecl);
@@ -0,0 +1,564 @@
+package pt.up.fe.comp2024.parser;
+
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.TokenStream;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp.jmm.ast.JmmNodeImpl;
+import pt.up.fe.comp.jmm.ast.NodePosition;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import static pt.up.fe.comp2024.JavammLexer.*;
+
+/**
+ * Hand-written recursive descent parser for Java--, that produces the same AST as the ANTLR parser generated from
+ * Javamm.g4 (same node kinds, hierarchies, attributes and positions).
+ * <p>
+ * Expressions are parsed by precedence climbing, with the precedences ANTLR derives from the order of the alternatives
+ * of the left-recursive {@code expr} rule, so each token is looked at once instead of going through adaptive
+ * prediction.
+ * <p>
+ * Syntax errors are recovered from at the imports, members of the class, variable declarations and statements: the
+ * error is recorded, the rest of the construct is skipped, and parsing goes on with the next one. The AST then has
+ * everything that was parsed without errors, and every error is reported, instead of only the first.
+ */
+public class JmmDescentParser {
+
+    /**
+     * Rules of the grammar this parser can start from.
+     */
+    public static final Set<String> RULES = Set.of("program", "expr");
+
+    // Precedences of the left-recursive alternatives of 'expr', as computed by ANTLR (earlier alternatives bind tighter)
+    private static final int NOT_PREC = 15;
+    private static final int ARRAY_ACCESS_PREC = 14;
+    private static final int METHOD_CALL_PREC = 12;
+    private static final int LENGTH_PREC = 11;
+    private static final int MUL_PREC = 8;
+    private static final int ADD_PREC = 7;
+    private static final int REL_PREC = 6;
+    private static final int AND_PREC = 5;
+
+    // Tokens a skipped statement or member stops before, as they start the next one
+    private static final Set<Integer> STMT_START = Set.of(IF, WHILE, RETURN);
+    private static final Set<Integer> MEMBER_START = Set.of(PUBLIC, STATIC);
+
+    private final TokenStream tokens;
+
+    // Syntax errors found, in the order of the input
+    private final List<JmmSyntaxException> errors;
+
+    // Last token consumed, which ends the node being built
+    private Token previous;
+
+    public JmmDescentParser(TokenStream tokens) {
+        this.tokens = tokens;
+        this.errors = new ArrayList<>();
+    }
+
+    /**
+     * Parses the given rule, which must be one of {@link #RULES}, up to the end of the input.
+     *
+     * @param rule
+     * @return the AST of what was parsed without errors, or null if the input could not be parsed at all
+     */
+    public JmmNode parse(String rule) {
+        try {
+            var node = switch (rule) {
+                case "program" -> parseProgram();
+                case "expr" -> parseExpr(0);
+                default -> throw new IllegalArgumentException("Rule not supported: " + rule);
+            };
+
+            if (rule.equals("program") && !check(EOF)) {
+                errors.add(error(tokens.LT(1), VOCABULARY.getDisplayName(EOF)));
+            }
+
+            return node;
+        } catch (JmmSyntaxException e) {
+            errors.add(e);
+            return null;
+        }
+    }
+
+    /**
+     * Parses a single member of a class, a field or a method declaration, up to the end of the input.
+     *
+     * @return the declaration, or null if the input is not a member without syntax errors
+     */
+    public JmmNode parseMember() {
+        try {
+            var member = isMethodDeclStart() ? parseMethodDecl() : parseVarDecl();
+            expect(EOF);
+            return member;
+        } catch (JmmSyntaxException e) {
+            errors.add(e);
+            return null;
+        }
+    }
+
+    /**
+     * @return the syntax errors found by {@link #parse(String)} or {@link #parseMember()}, in the order of the input
+     */
+    public List<JmmSyntaxException> getErrors() {
+        return errors;
+    }
+
+    private JmmNode parseProgram() {
+        var program = start("Program");
+
+        while (check(IMPORT)) {
+            parseRecovering(program, this::parseImportDecl, Set.of(IMPORT, CLASS));
+        }
+
+        program.add(parseClassDecl());
+
+        // The program rule of the grammar ends with EOF, which ANTLR takes as the stop token of the program
+        return check(EOF) ? end(program, tokens.LT(1)) : end(program);
+    }
+
+    private JmmNode parseImportDecl() {
+        var importDecl = start("ImportDecl");
+        expect(IMPORT);
+
+        List<String> names = new ArrayList<>();
+        var id = expect(ID);
+        names.add(id.getText());
+        while (accept(DOT)) {
+            id = expect(ID);
+            names.add(id.getText());
+        }
+        expect(SEMICOLLON);
+
+        importDecl.put("ID", id.getText());
+        importDecl.putObject("name", names);
+
+        return end(importDecl);
+    }
+
+    private JmmNode parseClassDecl() {
+        var classDecl = start("ClassDecl");
+        expect(CLASS);
+        classDecl.put("name", expect(ID).getText());
+
+        if (accept(EXTENDS)) {
+            classDecl.put("superClass", expect(ID).getText());
+        }
+
+        expect(LCURLY);
+
+        while (!check(RCURLY) && !check(EOF) && !isMethodDeclStart()) {
+            parseRecovering(classDecl, this::parseVarDecl, MEMBER_START);
+        }
+
+        while (!check(RCURLY) && !check(EOF)) {
+            parseRecovering(classDecl, this::parseMethodDecl, MEMBER_START);
+        }
+
+        expect(RCURLY);
+
+        return end(classDecl);
+    }
+
+    private boolean isMethodDeclStart() {
+        if (check(PUBLIC) || check(STATIC)) {
+            return true;
+        }
+
+        // type name '(' where the type may be followed by '[' ']'
+        var typeLength = (check(INT) || check(ID)) && tokens.LA(2) == LSTRAIT ? 3 : 1;
+        return tokens.LA(typeLength + 2) == LPAREN;
+    }
+
+    private boolean isVarDeclStart() {
+        var next = tokens.LA(1);
+        if (next == INT || next == INTSEQ || next == BOOLEAN) {
+            return true;
+        }
+
+        // 'A a' or 'A[] a', as opposed to statements starting with 'a' or 'a[i]'
+        return next == ID && (tokens.LA(2) == ID || (tokens.LA(2) == LSTRAIT && tokens.LA(3) == RSTRAIT));
+    }
+
+    private JmmNode parseVarDecl() {
+        var varDecl = start("VarDecl");
+        varDecl.add(parseType());
+        varDecl.put("name", expect(ID).getText());
+        expect(SEMICOLLON);
+
+        return end(varDecl);
+    }
+
+    private JmmNode parseType() {
+        var type = start("Type");
+        var isArray = false;
+
+        var name = tokens.LT(1);
+        switch (name.getType()) {
+            case INTSEQ, BOOLEAN -> consume();
+            case INT, ID -> {
+                consume();
+                if (accept(LSTRAIT)) {
+                    expect(RSTRAIT);
+                    isArray = true;
+                }
+            }
+            default -> throw error(name, "a type");
+        }
+
+        type.put("name", name.getText());
+        type.putObject("isArray", isArray);
+
+        return end(type);
+    }
+
+    private JmmNode parseMethodDecl() {
+        var methodDecl = start("MethodDecl");
+        methodDecl.putObject("isPublic", accept(PUBLIC));
+        methodDecl.putObject("isStatic", accept(STATIC));
+
+        methodDecl.add(parseType());
+        methodDecl.put("name", expect(ID).getText());
+
+        expect(LPAREN);
+        if (!check(RPAREN)) {
+            methodDecl.add(parseParam());
+            while (accept(COLLON)) {
+                methodDecl.add(parseParam());
+            }
+        }
+        expect(RPAREN);
+
+        expect(LCURLY);
+        while (isVarDeclStart()) {
+            parseRecovering(methodDecl, this::parseVarDecl, STMT_START);
+        }
+        while (!check(RCURLY) && !check(EOF)) {
+            parseRecovering(methodDecl, this::parseStmt, STMT_START);
+        }
+        expect(RCURLY);
+
+        return end(methodDecl);
+    }
+
+    private JmmNode parseParam() {
+        var param = start("Param");
+        param.add(parseType());
+        param.put("name", expect(ID).getText());
+
+        return end(param);
+    }
+
+    private JmmNode parseStmt() {
+        switch (tokens.LA(1)) {
+            case LCURLY -> {
+                var block = start("BlockStmt", "Stmt");
+                consume();
+                while (!check(RCURLY) && !check(EOF)) {
+                    parseRecovering(block, this::parseStmt, STMT_START);
+                }
+                expect(RCURLY);
+                return end(block);
+            }
+            case IF -> {
+                var ifElse = start("IfElseStmt", "Stmt");
+                consume();
+                expect(LPAREN);
+                ifElse.add(parseExpr(0));
+                expect(RPAREN);
+                ifElse.add(parseStmt());
+                if (accept(ELSE)) {
+                    ifElse.add(parseStmt());
+                }
+                return end(ifElse);
+            }
+            case WHILE -> {
+                var whileStmt = start("WhileStmt", "Stmt");
+                consume();
+                expect(LPAREN);
+                whileStmt.add(parseExpr(0));
+                expect(RPAREN);
+                whileStmt.add(parseStmt());
+                return end(whileStmt);
+            }
+            case RETURN -> {
+                var returnStmt = start("ReturnStmt", "Stmt");
+                consume();
+                if (!check(SEMICOLLON)) {
+                    var expr = parseExpr(0);
+                    returnStmt.add(expr);
+                    returnStmt.putObject("name", expr);
+                }
+                expect(SEMICOLLON);
+                return end(returnStmt);
+            }
+            default -> {
+                var startToken = tokens.LT(1);
+                var expr = parseExpr(0);
+
+                JmmNodeImpl stmt;
+                if (check(EQUALS)) {
+                    stmt = new JmmNodeImpl("AssignStmt");
+                    stmt.setHierarchy(List.of("AssignStmt", "Stmt"));
+                    setStart(stmt, startToken);
+                    stmt.add(expr);
+                    consume();
+                    stmt.add(parseExpr(0));
+                } else {
+                    stmt = new JmmNodeImpl("ExprStmt");
+                    stmt.setHierarchy(List.of("ExprStmt", "Stmt"));
+                    setStart(stmt, startToken);
+                    stmt.add(expr);
+                }
+                expect(SEMICOLLON);
+                return end(stmt);
+            }
+        }
+    }
+
+    /**
+     * Parses an expression whose operators all have a precedence of at least minPrec.
+     *
+     * @param minPrec
+     * @return
+     */
+    private JmmNode parseExpr(int minPrec) {
+        var startToken = tokens.LT(1);
+        var left = parsePrimary();
+
+        while (true) {
+            var next = tokens.LA(1);
+            JmmNodeImpl expr;
+
+            if (next == LSTRAIT && ARRAY_ACCESS_PREC >= minPrec) {
+                expr = start("ArrayAccessExpr", "Expr", startToken);
+                expr.add(left);
+                consume();
+                expr.add(parseExpr(0));
+                expect(RSTRAIT);
+            } else if (next == DOT && tokens.LA(2) == LENGTH && LENGTH_PREC >= minPrec) {
+                expr = start("LengthExpr", "Expr", startToken);
+                expr.add(left);
+                consume();
+                consume();
+            } else if (next == DOT && METHOD_CALL_PREC >= minPrec) {
+                expr = start("MethodCallExpr", "Expr", startToken);
+                expr.add(left);
+                consume();
+                expr.put("name", expect(ID).getText());
+                expect(LPAREN);
+                parseExprList(expr, RPAREN);
+            } else if (getBinaryPrec(next) >= minPrec) {
+                var prec = getBinaryPrec(next);
+                expr = start("BinaryExpr", "Expr", startToken);
+                expr.add(left);
+                expr.put("op", consume().getText());
+                expr.add(parseExpr(prec + 1));
+            } else {
+                return left;
+            }
+
+            left = end(expr);
+        }
+    }
+
+    private static int getBinaryPrec(int tokenType) {
+        return switch (tokenType) {
+            case MUL, DIV -> MUL_PREC;
+            case ADD, MINUS -> ADD_PREC;
+            case LESS, GREATER, LESSEQ, GRATHEREQ -> REL_PREC;
+            case AND, OR -> AND_PREC;
+            default -> -1;
+        };
+    }
+
+    private JmmNode parsePrimary() {
+        var token = tokens.LT(1);
+
+        switch (token.getType()) {
+            case LPAREN -> {
+                var paren = start("ParenExpr", "Expr");
+                consume();
+                paren.add(parseExpr(0));
+                expect(RPAREN);
+                return end(paren);
+            }
+            case NOT -> {
+                var unaryOp = start("UnaryOpExpr", "Expr");
+                consume();
+                unaryOp.add(parseExpr(NOT_PREC));
+                return end(unaryOp);
+            }
+            case LSTRAIT -> {
+                var newArray = start("NewArrayExpr", "Expr");
+                consume();
+                parseExprList(newArray, RSTRAIT);
+                return end(newArray);
+            }
+            case NEW -> {
+                if (tokens.LA(2) == INT) {
+                    var newArraySize = start("NewArraySizeExpr", "Expr");
+                    consume();
+                    consume();
+                    expect(LSTRAIT);
+                    newArraySize.add(parseExpr(0));
+                    expect(RSTRAIT);
+                    return end(newArraySize);
+                }
+
+                var newClass = start("NewClassExpr", "Expr");
+                consume();
+                newClass.put("name", expect(ID).getText());
+                expect(LPAREN);
+                expect(RPAREN);
+                return end(newClass);
+            }
+            case THIS -> {
+                var thisExpr = start("ThisExpr", "Expr");
+                consume();
+                return end(thisExpr);
+            }
+            case INTEGER -> {
+                var integer = start("IntegerLiteral", "Expr");
+                integer.put("value", consume().getText());
+                return end(integer);
+            }
+            case TRUE, FALSE -> {
+                var bool = start("BooleanLiteral", "Expr");
+                bool.put("value", consume().getText());
+                return end(bool);
+            }
+            case ID -> {
+                var varRef = start("VarRefExpr", "Expr");
+                varRef.put("name", consume().getText());
+                return end(varRef);
+            }
+            default -> throw error(token, "an expression");
+        }
+    }
+
+    /**
+     * Parses a possibly empty list of comma-separated expressions, and the token that closes it.
+     */
+    private void parseExprList(JmmNode parent, int close) {
+        if (accept(close)) {
+            return;
+        }
+
+        parent.add(parseExpr(0));
+        while (accept(COLLON)) {
+            parent.add(parseExpr(0));
+        }
+        expect(close);
+    }
+
+    /**
+     * Parses a construct and adds it to the parent or, if it has a syntax error, records the error and skips the rest of
+     * the construct: up to a ';' or the '}' that closes a block opened in it, or before a token in stopBefore or the
+     * '}' of the enclosing block.
+     *
+     * @param parent
+     * @param rule
+     * @param stopBefore
+     */
+    private void parseRecovering(JmmNode parent, Supplier<JmmNode> rule, Set<Integer> stopBefore) {
+        var start = tokens.index();
+        try {
+            parent.add(rule.get());
+            return;
+        } catch (JmmSyntaxException e) {
+            errors.add(e);
+        }
+
+        var depth = 0;
+        while (!check(EOF)) {
+            // A construct that failed on its first token skips at least that token, so the same error is not found again
+            var next = tokens.LA(1);
+            if (depth == 0 && (next == RCURLY || (stopBefore.contains(next) && tokens.index() != start))) {
+                return;
+            }
+
+            consume();
+            if (next == LCURLY) {
+                depth++;
+            } else if (next == RCURLY && --depth == 0) {
+                return;
+            } else if (next == SEMICOLLON && depth == 0) {
+                return;
+            }
+        }
+    }
+
+    private JmmNodeImpl start(String kind, String... superKinds) {
+        return start(kind, superKinds.length == 0 ? null : superKinds[0], tokens.LT(1));
+    }
+
+    private JmmNodeImpl start(String kind, String superKind, Token startToken) {
+        var node = new JmmNodeImpl(kind);
+        if (superKind != null) {
+            node.setHierarchy(List.of(kind, superKind));
+        }
+        setStart(node, startToken);
+        return node;
+    }
+
+    private static void setStart(JmmNode node, Token startToken) {
+        node.put(NodePosition.LINE_START.getKey(), Integer.toString(startToken.getLine()));
+        node.put(NodePosition.COL_START.getKey(), Integer.toString(startToken.getCharPositionInLine()));
+    }
+
+    /**
+     * Ends the node at the last token consumed, like ANTLR contexts end at their stop token.
+     */
+    private JmmNodeImpl end(JmmNodeImpl node) {
+        return end(node, previous);
+    }
+
+    private static JmmNodeImpl end(JmmNodeImpl node, Token stopToken) {
+        node.put(NodePosition.LINE_END.getKey(), Integer.toString(stopToken.getLine()));
+        node.put(NodePosition.COL_END.getKey(), Integer.toString(stopToken.getCharPositionInLine()));
+        return node;
+    }
+
+    private boolean check(int tokenType) {
+        return tokens.LA(1) == tokenType;
+    }
+
+    private Token consume() {
+        previous = tokens.LT(1);
+        tokens.consume();
+        return previous;
+    }
+
+    private boolean accept(int tokenType) {
+        if (!check(tokenType)) {
+            return false;
+        }
+
+        consume();
+        return true;
+    }
+
+    private Token expect(int tokenType) {
+        var token = tokens.LT(1);
+        if (token.getType() != tokenType) {
+            throw error(token, VOCABULARY.getDisplayName(tokenType));
+        }
+
+        // EOF cannot be consumed, and ends nothing
+        if (tokenType == EOF) {
+            return token;
+        }
+
+        return consume();
+    }
+
+    private static JmmSyntaxException error(Token token, String expected) {
+        var text = token.getType() == EOF ? "<EOF>" : token.getText();
+        return new JmmSyntaxException(token.getLine(), token.getCharPositionInLine(),
+                "mismatched input '" + text + "' expecting " + expected);
+    }
+}
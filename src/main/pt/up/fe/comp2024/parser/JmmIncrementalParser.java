@@ -0,0 +1,247 @@
+package pt.up.fe.comp2024.parser;
+
+import org.antlr.v4.runtime.ANTLRInputStream;
+import org.antlr.v4.runtime.CommonTokenStream;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp.jmm.ast.NodePosition;
+import pt.up.fe.comp.jmm.ast.antlr.JmmErrorListener;
+import pt.up.fe.comp.jmm.parser.JmmParserResult;
+import pt.up.fe.comp.jmm.report.Stage;
+import pt.up.fe.comp2024.ast.CompactJmmNode;
+import pt.up.fe.comp2024.ast.Kind;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Parses a program again after an edit of its code, by parsing only the member of the class (field or method
+ * declaration) the edit is in, and splicing it into the previous AST.
+ * <p>
+ * The previous AST is changed in place: the member is replaced by the new one, and the positions of the nodes after the
+ * edit are moved. The whole program is parsed again instead if the previous AST had errors or is a compact AST, which
+ * cannot be changed, if the edit is not inside a single member, or if the new text of the member is not a single member
+ * of the same kind without errors.
+ */
+public class JmmIncrementalParser {
+
+    /**
+     * Replacement of the length characters of the code at offset.
+     *
+     * @param offset
+     * @param length
+     * @param replacement
+     */
+    public record TextEdit(int offset, int length, String replacement) {
+
+        public String apply(String code) {
+            return code.substring(0, offset) + replacement + code.substring(offset + length);
+        }
+    }
+
+    /**
+     * @param code         the code after the edit
+     * @param parserResult
+     * @param replaced     the member that was replaced, or null if the whole program was parsed again
+     * @param member       the member that replaced it, or null if the whole program was parsed again
+     */
+    public record Result(String code, JmmParserResult parserResult, JmmNode replaced, JmmNode member) {
+
+        public boolean isIncremental() {
+            return member != null;
+        }
+    }
+
+    private static final NodePosition[][] POSITIONS = {
+            {NodePosition.LINE_START, NodePosition.COL_START},
+            {NodePosition.LINE_END, NodePosition.COL_END}
+    };
+
+    private final JmmParserImpl parser;
+
+    public JmmIncrementalParser() {
+        this.parser = new JmmParserImpl();
+    }
+
+    /**
+     * @param code     the code the previous result was parsed from
+     * @param previous
+     * @param edit
+     * @return the result of parsing the code after the edit
+     */
+    public Result reparse(String code, JmmParserResult previous, TextEdit edit) {
+        var newCode = edit.apply(code);
+
+        var result = reparseMember(code, newCode, previous, edit);
+        if (result != null) {
+            return result;
+        }
+
+        return new Result(newCode, parser.parse(newCode, previous.getConfig()), null, null);
+    }
+
+    private Result reparseMember(String code, String newCode, JmmParserResult previous, TextEdit edit) {
+        var root = previous.getRootNode();
+        if (root == null || root instanceof CompactJmmNode || !previous.getReports().isEmpty()) {
+            return null;
+        }
+
+        var classDecl = root.getChildren(Kind.CLASS_DECL).stream().findFirst().orElse(null);
+        if (classDecl == null) {
+            return null;
+        }
+
+        // Members end at their last token, a ';' or a '}'
+        var lines = getLineOffsets(code);
+        var editEnd = edit.offset() + edit.length();
+        JmmNode replaced = null;
+        int start = 0, end = 0;
+        for (var child : classDecl.getChildren()) {
+            start = getOffset(lines, child, POSITIONS[0]);
+            end = getOffset(lines, child, POSITIONS[1]) + 1;
+            if (start <= edit.offset() && editEnd <= end) {
+                replaced = child;
+                break;
+            }
+        }
+        if (replaced == null) {
+            return null;
+        }
+
+        var config = previous.getConfig();
+        var text = newCode.substring(start, end + edit.replacement().length() - edit.length());
+
+        var lex = JmmParserImpl.newLexer(new ANTLRInputStream(text), config);
+        lex.removeErrorListeners();
+        var lexerListener = new JmmErrorListener(Stage.LEXICAL);
+        lex.addErrorListener(lexerListener);
+
+        var descent = new JmmDescentParser(new CommonTokenStream(lex));
+        var member = descent.parseMember();
+        if (member == null || !descent.getErrors().isEmpty() || !lexerListener.getReports().isEmpty() ||
+                !member.getKind().equals(replaced.getKind())) {
+            return null;
+        }
+
+        // The member was parsed on its own, from line 1 and column 0
+        var startLine = Integer.parseInt(replaced.get(NodePosition.LINE_START.getKey()));
+        var startColumn = Integer.parseInt(replaced.get(NodePosition.COL_START.getKey()));
+        member.getDescendantsAndSelfStream().forEach(node -> {
+            for (var position : POSITIONS) {
+                var line = Integer.parseInt(node.get(position[0].getKey()));
+                var column = Integer.parseInt(node.get(position[1].getKey()));
+                setPosition(node, position, startLine + line - 1, line == 1 ? startColumn + column : column);
+            }
+        });
+
+        new Move(lines, edit).after(replaced);
+        classDecl.setChild(member, replaced.getIndexOfSelf());
+
+        return new Result(newCode, new JmmParserResult(root, new ArrayList<>(), config), replaced, member);
+    }
+
+    /**
+     * Moves the positions at or after the end of an edit to where they are in the code after the edit: the positions on
+     * the line where the edit ends by as many lines and columns as its end moved, and the positions on the lines after
+     * it by as many lines.
+     */
+    private static class Move {
+
+        private final int endLine;
+        private final int endColumn;
+        private final int newEndLine;
+        private final int newEndColumn;
+
+        private Move(int[] lines, TextEdit edit) {
+            var editEnd = edit.offset() + edit.length();
+
+            // The line that has the offset is the last one that starts at or before it
+            var startLine = Arrays.binarySearch(lines, edit.offset());
+            startLine = startLine >= 0 ? startLine : -startLine - 2;
+            var line = Arrays.binarySearch(lines, editEnd);
+            line = line >= 0 ? line : -line - 2;
+
+            this.endLine = line + 1;
+            this.endColumn = editEnd - lines[line];
+
+            var replacement = edit.replacement();
+            var lastNewline = replacement.lastIndexOf('\n');
+            this.newEndLine = startLine + 1 + (int) replacement.chars().filter(c -> c == '\n').count();
+            this.newEndColumn = lastNewline == -1 ? edit.offset() - lines[startLine] + replacement.length() :
+                    replacement.length() - lastNewline - 1;
+        }
+
+        /**
+         * Moves the nodes after the given one, and the ends of its ancestors, which are the only positions after the
+         * edit if it is inside the node.
+         *
+         * @param node
+         */
+        private void after(JmmNode node) {
+            for (var child = node; child.getParent() != null; child = child.getParent()) {
+                var parent = child.getParent();
+                move(parent, POSITIONS[1]);
+
+                var siblings = parent.getChildren();
+                for (int i = child.getIndexOfSelf() + 1; i < siblings.size(); i++) {
+                    moveAll(siblings.get(i));
+                }
+            }
+        }
+
+        private void moveAll(JmmNode node) {
+            // If no lines were added or removed, nodes that start after the line of the edit stay where they are
+            var line = Integer.parseInt(node.get(POSITIONS[0][0].getKey()));
+            if (line > endLine && newEndLine == endLine) {
+                return;
+            }
+
+            move(node, POSITIONS[0]);
+            move(node, POSITIONS[1]);
+            for (var child : node.getChildren()) {
+                moveAll(child);
+            }
+        }
+
+        private void move(JmmNode node, NodePosition[] position) {
+            var line = node.getOptional(position[0].getKey()).map(Integer::parseInt).orElse(-1);
+            if (line < endLine) {
+                return;
+            }
+
+            var column = Integer.parseInt(node.get(position[1].getKey()));
+            if (line > endLine) {
+                setPosition(node, position, line - endLine + newEndLine, column);
+            } else if (column >= endColumn) {
+                setPosition(node, position, newEndLine, column - endColumn + newEndColumn);
+            }
+        }
+    }
+
+    /**
+     * @param code
+     * @return the offset where each line of the code starts
+     */
+    private static int[] getLineOffsets(String code) {
+        List<Integer> offsets = new ArrayList<>();
+        offsets.add(0);
+        for (int i = 0; i < code.length(); i++) {
+            if (code.charAt(i) == '\n') {
+                offsets.add(i + 1);
+            }
+        }
+
+        return offsets.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private static int getOffset(int[] lines, JmmNode node, NodePosition[] position) {
+        var line = Integer.parseInt(node.get(position[0].getKey()));
+        var column = Integer.parseInt(node.get(position[1].getKey()));
+        return lines[line - 1] + column;
+    }
+
+    private static void setPosition(JmmNode node, NodePosition[] position, int line, int column) {
+        node.put(position[0].getKey(), Integer.toString(line));
+        node.put(position[1].getKey(), Integer.toString(column));
+    }
+}
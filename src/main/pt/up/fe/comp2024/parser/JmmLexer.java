@@ -0,0 +1,348 @@
+package pt.up.fe.comp2024.parser;
+
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.Lexer;
+import org.antlr.v4.runtime.LexerNoViableAltException;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.Vocabulary;
+import org.antlr.v4.runtime.atn.ATN;
+import pt.up.fe.comp2024.JavammLexer;
+
+import java.util.Arrays;
+
+import static pt.up.fe.comp2024.JavammLexer.*;
+
+/**
+ * Hand-written lexer for Java--, that produces the same tokens as the ANTLR {@link JavammLexer} generated from
+ * Javamm.g4, and can be used wherever it is.
+ * <p>
+ * Tokens are matched with a switch over the next character instead of the lexer ATN, keywords are recognized without
+ * allocating their text, and tokens are created without copying their text, which is only read from the input when
+ * requested.
+ */
+public class JmmLexer extends Lexer {
+
+    private static final String[] KEYWORDS = {
+            "class", "import", "extends", "int", "boolean", "public", "return", "if", "else", "while", "length", "new",
+            "true", "false", "this", "static"
+    };
+
+    private static final int[] KEYWORD_TYPES = {
+            CLASS, IMPORT, EXTENDS, INT, BOOLEAN, PUBLIC, RETURN, IF, ELSE, WHILE, LENGTH, NEW, TRUE, FALSE, THIS, STATIC
+    };
+
+    private int line = 1;
+    private int column = 0;
+
+    // Characters of the identifier being matched, reused between tokens
+    private char[] word = new char[32];
+
+    public JmmLexer(CharStream input) {
+        super(input);
+    }
+
+    @Override
+    public Token nextToken() {
+        while (true) {
+            _tokenStartCharIndex = _input.index();
+            _tokenStartLine = line;
+            _tokenStartCharPositionInLine = column;
+
+            if (_input.LA(1) == EOF) {
+                _hitEOF = true;
+                return emitEOF();
+            }
+
+            var type = matchToken();
+            if (type == SKIP) {
+                continue;
+            }
+
+            var token = _factory.create(_tokenFactorySourcePair, type, null, DEFAULT_TOKEN_CHANNEL,
+                    _tokenStartCharIndex, _input.index() - 1, _tokenStartLine, _tokenStartCharPositionInLine);
+            emit(token);
+            return token;
+        }
+    }
+
+    /**
+     * Consumes the next token.
+     *
+     * @return the type of the token, or {@link #SKIP} for whitespace, comments and invalid characters
+     */
+    private int matchToken() {
+        var c = advance();
+
+        switch (c) {
+            case ' ', '\t', '\n', '\r', '\f' -> {
+                while (isWhitespace(_input.LA(1))) {
+                    advance();
+                }
+                return SKIP;
+            }
+            case '=' -> {
+                return EQUALS;
+            }
+            case ';' -> {
+                return SEMICOLLON;
+            }
+            case ',' -> {
+                return COLLON;
+            }
+            case '.' -> {
+                return DOT;
+            }
+            case '{' -> {
+                return LCURLY;
+            }
+            case '}' -> {
+                return RCURLY;
+            }
+            case '(' -> {
+                return LPAREN;
+            }
+            case ')' -> {
+                return RPAREN;
+            }
+            case '[' -> {
+                return LSTRAIT;
+            }
+            case ']' -> {
+                return RSTRAIT;
+            }
+            case '*' -> {
+                return MUL;
+            }
+            case '+' -> {
+                return ADD;
+            }
+            case '-' -> {
+                return MINUS;
+            }
+            case '!' -> {
+                return NOT;
+            }
+            case '<' -> {
+                return accept('=') ? LESSEQ : LESS;
+            }
+            case '>' -> {
+                return accept('=') ? GRATHEREQ : GREATER;
+            }
+            case '&' -> {
+                return accept('&') ? AND : error();
+            }
+            case '|' -> {
+                return accept('|') ? OR : error();
+            }
+            case '/' -> {
+                return matchSlash();
+            }
+            case '0' -> {
+                return INTEGER;
+            }
+            default -> {
+                if (c >= '1' && c <= '9') {
+                    while (isDigit(_input.LA(1))) {
+                        advance();
+                    }
+                    return INTEGER;
+                }
+
+                if (isIdentifierStart(c)) {
+                    return matchWord(c);
+                }
+
+                // No token starts with this character, so it is the one reported
+                _input.seek(_tokenStartCharIndex);
+                column = _tokenStartCharPositionInLine;
+                return error();
+            }
+        }
+    }
+
+    /**
+     * Matches a division or a comment, after the '/'.
+     */
+    private int matchSlash() {
+        // SLC
+        if (accept('/')) {
+            while (_input.LA(1) != EOF && _input.LA(1) != '\n' && _input.LA(1) != '\r') {
+                advance();
+            }
+            return SKIP;
+        }
+
+        if (_input.LA(1) != '*') {
+            return DIV;
+        }
+
+        // MLC, that is only a division if it is not closed
+        var slashIndex = _input.index();
+        advance();
+        while (_input.LA(1) != EOF) {
+            if (advance() == '*' && accept('/')) {
+                return SKIP;
+            }
+        }
+
+        _input.seek(slashIndex);
+        line = _tokenStartLine;
+        column = _tokenStartCharPositionInLine + 1;
+        return DIV;
+    }
+
+    /**
+     * Matches an identifier or keyword, after its first character.
+     */
+    private int matchWord(int first) {
+        var length = 0;
+        word[length++] = (char) first;
+        while (isIdentifierPart(_input.LA(1))) {
+            if (length == word.length) {
+                word = Arrays.copyOf(word, length * 2);
+            }
+            word[length++] = (char) advance();
+        }
+
+        var type = getKeywordType(length);
+
+        // 'int...' is a single token
+        if (type == INT && _input.LA(1) == '.' && _input.LA(2) == '.' && _input.LA(3) == '.') {
+            advance();
+            advance();
+            advance();
+            return INTSEQ;
+        }
+
+        return type;
+    }
+
+    private int getKeywordType(int length) {
+        for (int i = 0; i < KEYWORDS.length; i++) {
+            var keyword = KEYWORDS[i];
+            if (keyword.length() != length) {
+                continue;
+            }
+
+            var matches = true;
+            for (int j = 0; j < length && matches; j++) {
+                matches = keyword.charAt(j) == word[j];
+            }
+
+            if (matches) {
+                return KEYWORD_TYPES[i];
+            }
+        }
+
+        return ID;
+    }
+
+    /**
+     * Reports the characters matched so far and the next one as invalid, and skips them, like the ANTLR lexer.
+     */
+    private int error() {
+        notifyListeners(new LexerNoViableAltException(this, _input, _tokenStartCharIndex, null));
+        if (_input.LA(1) != EOF) {
+            advance();
+        }
+        return SKIP;
+    }
+
+    private int advance() {
+        var c = _input.LA(1);
+        _input.consume();
+
+        if (c == '\n') {
+            line++;
+            column = 0;
+        } else {
+            column++;
+        }
+
+        return c;
+    }
+
+    private boolean accept(int c) {
+        if (_input.LA(1) != c) {
+            return false;
+        }
+
+        advance();
+        return true;
+    }
+
+    private static boolean isWhitespace(int c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '\f';
+    }
+
+    private static boolean isDigit(int c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isIdentifierStart(int c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_' || c == '$';
+    }
+
+    private static boolean isIdentifierPart(int c) {
+        return isIdentifierStart(c) || isDigit(c);
+    }
+
+    @Override
+    public void reset() {
+        if (_input != null) {
+            _input.seek(0);
+        }
+
+        _token = null;
+        _type = Token.INVALID_TYPE;
+        _channel = DEFAULT_TOKEN_CHANNEL;
+        _tokenStartCharIndex = -1;
+        _tokenStartLine = -1;
+        _tokenStartCharPositionInLine = -1;
+        _text = null;
+        _hitEOF = false;
+
+        line = 1;
+        column = 0;
+    }
+
+    @Override
+    public int getLine() {
+        return line;
+    }
+
+    @Override
+    public int getCharPositionInLine() {
+        return column;
+    }
+
+    @Override
+    public void setLine(int line) {
+        this.line = line;
+    }
+
+    @Override
+    public void setCharPositionInLine(int charPositionInLine) {
+        this.column = charPositionInLine;
+    }
+
+    @Override
+    public Vocabulary getVocabulary() {
+        return JavammLexer.VOCABULARY;
+    }
+
+    @Override
+    public String[] getRuleNames() {
+        return JavammLexer.ruleNames;
+    }
+
+    @Override
+    public String getGrammarFileName() {
+        return "Javamm.g4";
+    }
+
+    @Override
+    public ATN getATN() {
+        return JavammLexer._ATN;
+    }
+}
@@ -1,13 +1,23 @@
 package pt.up.fe.comp2024.parser;
 
 import org.antlr.v4.runtime.ANTLRInputStream;
+import org.antlr.v4.runtime.BailErrorStrategy;
+import org.antlr.v4.runtime.CharStream;
 import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.Lexer;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
+import pt.up.fe.comp.jmm.ast.JmmNode;
 import pt.up.fe.comp.jmm.ast.antlr.AntlrParser;
+import pt.up.fe.comp.jmm.ast.antlr.JmmErrorListener;
 import pt.up.fe.comp.jmm.parser.JmmParser;
 import pt.up.fe.comp.jmm.parser.JmmParserResult;
 import pt.up.fe.comp.jmm.report.Report;
 import pt.up.fe.comp.jmm.report.Stage;
+import pt.up.fe.comp2024.CompilerConfig;
+import pt.up.fe.comp2024.ast.CompactAst;
 
+import java.util.ArrayList;
 import java.util.Map;
 
 /**
@@ -32,24 +42,117 @@ public class JmmParserImpl implements JmmParser {
 
     @Override
     public JmmParserResult parse(String jmmCode, String startingRule, Map<String, String> config) {
+        // Convert code string into a character stream
+        return parse(new ANTLRInputStream(jmmCode), startingRule, config);
+    }
+
+    /**
+     * Parses the code of a character stream, such as a memory-mapped file from {@link MappedCharStream#open}.
+     *
+     * @param input
+     * @param config
+     * @return
+     */
+    public JmmParserResult parse(CharStream input, Map<String, String> config) {
+        return parse(input, getDefaultRule(), config);
+    }
+
+    public JmmParserResult parse(CharStream input, String startingRule, Map<String, String> config) {
+        var result = parseTree(input, startingRule, config);
+
+        if (result.getRootNode() == null || !CompilerConfig.getCompactAst(config)) {
+            return result;
+        }
+
+        var compactAst = CompactAst.from(result.getRootNode());
+        return new JmmParserResult(compactAst.getRoot(), result.getReports(), config);
+    }
 
+    private JmmParserResult parseTree(CharStream input, String startingRule, Map<String, String> config) {
         try {
-            // Convert code string into a character stream
-            var input = new ANTLRInputStream(jmmCode);
-            // Transform characters into tokens using the lexer
-            var lex = new pt.up.fe.comp2024.JavammLexer(input);
-            // Wrap lexer around a token stream
-            var tokens = new CommonTokenStream(lex);
-            // Transforms tokens into a parse tree
-            var parser = new pt.up.fe.comp2024.JavammParser(tokens);
+            if (CompilerConfig.getParser(config).equals(CompilerConfig.DESCENT_PARSER) &&
+                    JmmDescentParser.RULES.contains(startingRule)) {
+                return parseDescent(input, startingRule, config);
+            }
 
+            // Most inputs parse with the faster SLL prediction; it bails out on the first syntax error, which is either
+            // a real error or an input that needs full LL prediction, so only then parse again with LL
+            try {
+                return parse(input, startingRule, config, PredictionMode.SLL);
+            } catch (RuntimeException e) {
+                if (!isParseCancellation(e)) {
+                    throw e;
+                }
+            }
 
-            // Convert ANTLR CST to JmmNode AST
-            return AntlrParser.parse(lex, parser, startingRule, config);
+            input.seek(0);
+            return parse(input, startingRule, config, PredictionMode.LL);
 
         } catch (Exception e) {
             // There was an uncaught exception during parsing, create an error JmmParserResult without root node
             return JmmParserResult.newError(Report.newError(Stage.SYNTATIC, -1, -1, "Exception during parsing", e), config);
         }
     }
+
+    private JmmParserResult parse(CharStream input, String startingRule, Map<String, String> config, PredictionMode mode) {
+        // Transform characters into tokens using the lexer
+        var lex = newLexer(input, config);
+        // Wrap lexer around a token stream
+        var tokens = new CommonTokenStream(lex);
+        // Transforms tokens into a parse tree. The generated parser keeps its DFA and prediction context cache in
+        // static fields, so what was learned while parsing is shared by every parse in the JVM
+        var parser = new pt.up.fe.comp2024.JavammParser(tokens);
+
+        parser.getInterpreter().setPredictionMode(mode);
+        if (mode == PredictionMode.SLL) {
+            parser.setErrorHandler(new BailErrorStrategy());
+        }
+
+        // Convert ANTLR CST to JmmNode AST
+        return AntlrParser.parse(lex, parser, startingRule, config);
+    }
+
+    static Lexer newLexer(CharStream input, Map<String, String> config) {
+        if (CompilerConfig.getLexer(config).equals(CompilerConfig.HANDWRITTEN_LEXER)) {
+            return new JmmLexer(input);
+        }
+
+        return new pt.up.fe.comp2024.JavammLexer(input);
+    }
+
+    private JmmParserResult parseDescent(CharStream input, String startingRule, Map<String, String> config) {
+        var lex = newLexer(input, config);
+        lex.removeErrorListeners();
+        var lexerListener = new JmmErrorListener(Stage.LEXICAL);
+        lex.addErrorListener(lexerListener);
+
+        var tokens = new CommonTokenStream(lex);
+
+        var parser = new JmmDescentParser(tokens);
+        JmmNode root = parser.parse(startingRule);
+
+        var reports = new ArrayList<Report>();
+        for (var error : parser.getErrors()) {
+            reports.add(Report.newError(Stage.SYNTATIC, error.getLine(), error.getColumn(), error.getMessage(), error));
+        }
+
+        // Lexer errors come first, as with ANTLR
+        reports.addAll(0, lexerListener.getReports());
+
+        // The parser recovers from syntax errors, so the AST has what was parsed even if there are errors
+        return new JmmParserResult(root, reports, config);
+    }
+
+    /**
+     * The rule is invoked through reflection, so the exception thrown by {@link BailErrorStrategy} arrives wrapped.
+     */
+    private static boolean isParseCancellation(Throwable e) {
+        for (var cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ParseCancellationException) {
+                return true;
+            }
+        }
+
+        return false;
+    }
 }
@@ -0,0 +1,26 @@
+package pt.up.fe.comp2024.parser;
+
+/**
+ * Syntax error found by {@link JmmDescentParser}.
+ */
+public class JmmSyntaxException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int line;
+    private final int column;
+
+    public JmmSyntaxException(int line, int column, String message) {
+        super(message);
+        this.line = line;
+        this.column = column;
+    }
+
+    public int getLine() {
+        return line;
+    }
+
+    public int getColumn() {
+        return column;
+    }
+}
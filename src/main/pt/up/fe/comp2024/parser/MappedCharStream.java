@@ -0,0 +1,150 @@
+package pt.up.fe.comp2024.parser;
+
+import org.antlr.v4.runtime.ANTLRInputStream;
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.IntStream;
+import org.antlr.v4.runtime.misc.Interval;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Character stream over a memory-mapped source file, so the source is read by the lexer straight from the page cache
+ * instead of being copied into a String and then into the char array of an {@link ANTLRInputStream}.
+ * <p>
+ * Each byte of the file is one character, which is only correct for ASCII files; {@link #open(Path)} falls back to an
+ * {@link ANTLRInputStream} for other files.
+ */
+public class MappedCharStream implements CharStream {
+
+    private final ByteBuffer data;
+    private final int size;
+    private final String name;
+
+    // Index of the next character to consume
+    private int p = 0;
+
+    private MappedCharStream(ByteBuffer data, String name) {
+        this.data = data;
+        this.size = data.limit();
+        this.name = name;
+    }
+
+    /**
+     * Opens a source file as a character stream, memory-mapped if the file is ASCII.
+     *
+     * @param file
+     * @return
+     * @throws IOException
+     */
+    public static CharStream open(Path file) throws IOException {
+        try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("File is too large: " + file);
+            }
+
+            // The mapping stays valid after the channel is closed
+            var data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+            if (!isAscii(data)) {
+                var stream = new ANTLRInputStream(Files.readString(file, StandardCharsets.UTF_8));
+                stream.name = file.toString();
+                return stream;
+            }
+
+            return new MappedCharStream(data, file.toString());
+        }
+    }
+
+    private static boolean isAscii(ByteBuffer data) {
+        for (int i = 0; i < data.limit(); i++) {
+            if (data.get(i) < 0) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    @Override
+    public void consume() {
+        if (p >= size) {
+            throw new IllegalStateException("cannot consume EOF");
+        }
+
+        p++;
+    }
+
+    @Override
+    public int LA(int i) {
+        if (i == 0) {
+            return 0; // undefined
+        }
+
+        if (i < 0) {
+            i++; // e.g., translate LA(-1) to use offset i=0; then data[p+0-1]
+            if (p + i - 1 < 0) {
+                return IntStream.EOF;
+            }
+        }
+
+        var index = p + i - 1;
+        if (index >= size) {
+            return IntStream.EOF;
+        }
+
+        return data.get(index);
+    }
+
+    @Override
+    public int mark() {
+        return -1;
+    }
+
+    @Override
+    public void release(int marker) {
+    }
+
+    @Override
+    public int index() {
+        return p;
+    }
+
+    @Override
+    public void seek(int index) {
+        p = Math.min(index, size);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public String getSourceName() {
+        return name;
+    }
+
+    @Override
+    public String getText(Interval interval) {
+        var start = interval.a;
+        var stop = Math.min(interval.b, size - 1);
+        if (start >= size || stop < start) {
+            return "";
+        }
+
+        var bytes = new byte[stop - start + 1];
+        data.get(start, bytes);
+        return new String(bytes, StandardCharsets.US_ASCII);
+    }
+
+    @Override
+    public String toString() {
+        return getText(Interval.of(0, size - 1));
+    }
+}
@@ -0,0 +1,53 @@
+package pt.up.fe.comp2024.symboltable;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Symbol tables read from class files, shared by every compilation.
+ * <p>
+ * Only the most recently used tables are kept, and a class file that changed since it was read is read again.
+ */
+public class ClassFileCache {
+
+    private static final int CAPACITY = 256;
+
+    private record Entry(FileTime modified, Optional<JmmSymbolTable> table) {
+    }
+
+    // In access order, so the eldest entry is the least recently used
+    private static final Map<Path, Entry> entries = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Path, Entry> eldest) {
+            return size() > CAPACITY;
+        }
+    };
+
+    /**
+     * @param classFile
+     * @return the symbol table of the class in the class file, or empty if it is not a class file
+     * @throws IOException
+     */
+    public static synchronized Optional<JmmSymbolTable> get(Path classFile) throws IOException {
+        classFile = classFile.toAbsolutePath().normalize();
+        var modified = Files.getLastModifiedTime(classFile);
+
+        var entry = entries.get(classFile);
+        if (entry != null && entry.modified().equals(modified)) {
+            return entry.table();
+        }
+
+        Optional<JmmSymbolTable> table;
+        try (var input = Files.newInputStream(classFile)) {
+            table = ClassFileReader.read(input);
+        }
+        entries.put(classFile, new Entry(modified, table));
+
+        return table;
+    }
+}
@@ -0,0 +1,184 @@
+package pt.up.fe.comp2024.symboltable;
+
+import pt.up.fe.comp.jmm.analysis.table.Symbol;
+import pt.up.fe.comp.jmm.analysis.table.Type;
+import pt.up.fe.comp2024.ast.TypeUtils;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Reads the symbol table of a class from its class file, without loading the class.
+ * <p>
+ * Only the header of the class file is read: the constant pool, the class and its superclass, and the names and
+ * descriptors of the fields and methods. Attributes, including the code of the methods, are skipped. Parameters have
+ * no names in the header, so they are named arg0, arg1, and so on.
+ */
+public class ClassFileReader {
+
+    private static final int MAGIC = 0xCAFEBABE;
+
+    private static final int ACC_VARARGS = 0x0080;
+
+    private static final int CONSTANT_UTF8 = 1;
+    private static final int CONSTANT_CLASS = 7;
+    private static final int CONSTANT_LONG = 5;
+    private static final int CONSTANT_DOUBLE = 6;
+
+    /**
+     * @param input
+     * @return the symbol table of the class, or empty if the input is not a class file
+     * @throws IOException
+     */
+    public static Optional<JmmSymbolTable> read(InputStream input) throws IOException {
+        var in = new DataInputStream(new BufferedInputStream(input));
+        if (in.readInt() != MAGIC) {
+            return Optional.empty();
+        }
+        in.readUnsignedShort(); // minor version
+        in.readUnsignedShort(); // major version
+
+        // Entries are numbered from 1, and longs and doubles take two
+        var poolCount = in.readUnsignedShort();
+        var utf8 = new String[poolCount];
+        var classNames = new int[poolCount];
+        for (int i = 1; i < poolCount; i++) {
+            var tag = in.readUnsignedByte();
+            switch (tag) {
+                case CONSTANT_UTF8 -> utf8[i] = in.readUTF();
+                case CONSTANT_CLASS -> classNames[i] = in.readUnsignedShort();
+                case CONSTANT_LONG, CONSTANT_DOUBLE -> {
+                    in.skipNBytes(8);
+                    i++;
+                }
+                case 3, 4, 9, 10, 11, 12, 17, 18 -> in.skipNBytes(4); // integer, float, references, dynamic
+                case 8, 16, 19, 20 -> in.skipNBytes(2); // string, method type, module, package
+                case 15 -> in.skipNBytes(3); // method handle
+                default -> throw new IOException("Unknown constant pool tag " + tag + " at entry " + i);
+            }
+        }
+
+        in.readUnsignedShort(); // access flags
+        var className = getSimpleName(utf8[classNames[in.readUnsignedShort()]]);
+        var superIndex = in.readUnsignedShort();
+        var superClass = superIndex == 0 ? "" : utf8[classNames[superIndex]];
+        superClass = superClass.equals("java/lang/Object") ? "" : getSimpleName(superClass);
+
+        var interfaceCount = in.readUnsignedShort();
+        in.skipNBytes(2L * interfaceCount);
+
+        List<Symbol> fields = new ArrayList<>();
+        var fieldCount = in.readUnsignedShort();
+        for (int i = 0; i < fieldCount; i++) {
+            in.readUnsignedShort(); // access flags
+            var name = utf8[in.readUnsignedShort()];
+            var descriptor = utf8[in.readUnsignedShort()];
+            skipAttributes(in);
+
+            fields.add(new Symbol(parseType(descriptor, new int[]{0}), name));
+        }
+
+        List<String> methods = new ArrayList<>();
+        Map<String, Type> returnTypes = new HashMap<>();
+        Map<String, List<Symbol>> params = new HashMap<>();
+        Map<String, List<Symbol>> locals = new HashMap<>();
+        List<MethodSignature> signatures = new ArrayList<>();
+        var methodCount = in.readUnsignedShort();
+        for (int i = 0; i < methodCount; i++) {
+            var accessFlags = in.readUnsignedShort();
+            var name = utf8[in.readUnsignedShort()];
+            var descriptor = utf8[in.readUnsignedShort()];
+            skipAttributes(in);
+
+            if (name.startsWith("<")) {
+                continue;
+            }
+
+            // (I[I)Z: the parameter types, then the return type
+            var position = new int[]{1};
+            List<Type> parameterTypes = new ArrayList<>();
+            while (descriptor.charAt(position[0]) != ')') {
+                parameterTypes.add(parseType(descriptor, position));
+            }
+            position[0]++;
+            var returnType = parseType(descriptor, position);
+
+            var last = parameterTypes.size() - 1;
+            if ((accessFlags & ACC_VARARGS) != 0 && last >= 0
+                    && parameterTypes.get(last).equals(TypeUtils.getIntArrayType())) {
+                parameterTypes.set(last, TypeUtils.getIntSeqType());
+            }
+
+            List<Symbol> methodParams = new ArrayList<>();
+            for (int j = 0; j < parameterTypes.size(); j++) {
+                methodParams.add(new Symbol(parameterTypes.get(j), "arg" + j));
+            }
+
+            // Overloaded methods share the entries of the first one, as in a table built from source
+            methods.add(name);
+            returnTypes.putIfAbsent(name, returnType);
+            params.putIfAbsent(name, methodParams);
+            locals.putIfAbsent(name, List.of());
+            signatures.add(MethodSignature.of(name, parameterTypes, returnType));
+        }
+
+        return Optional.of(new JmmSymbolTable(className, superClass, List.of(), methods, fields, returnTypes, params,
+                locals, signatures));
+    }
+
+    private static void skipAttributes(DataInputStream in) throws IOException {
+        var attributeCount = in.readUnsignedShort();
+        for (int i = 0; i < attributeCount; i++) {
+            in.readUnsignedShort(); // name
+            in.skipNBytes(Integer.toUnsignedLong(in.readInt()));
+        }
+    }
+
+    /**
+     * Parses the type that starts at the position in a descriptor, and moves the position past it.
+     *
+     * @param descriptor
+     * @param position
+     * @return the type, with class types named by their simple name
+     */
+    private static Type parseType(String descriptor, int[] position) {
+        var isArray = false;
+        while (descriptor.charAt(position[0]) == '[') {
+            isArray = true;
+            position[0]++;
+        }
+
+        var code = descriptor.charAt(position[0]++);
+        var name = switch (code) {
+            case 'I' -> TypeUtils.getIntTypeName();
+            case 'Z' -> TypeUtils.getBooleanTypeName();
+            case 'V' -> "void";
+            case 'B' -> "byte";
+            case 'C' -> "char";
+            case 'S' -> "short";
+            case 'J' -> "long";
+            case 'F' -> "float";
+            case 'D' -> "double";
+            case 'L' -> {
+                var end = descriptor.indexOf(';', position[0]);
+                var internalName = descriptor.substring(position[0], end);
+                position[0] = end + 1;
+                yield getSimpleName(internalName);
+            }
+            default -> throw new IllegalArgumentException("Unknown type '" + code + "' in descriptor '" + descriptor + "'");
+        };
+
+        return TypeUtils.getType(name, isArray);
+    }
+
+    private static String getSimpleName(String internalName) {
+        return internalName.substring(internalName.lastIndexOf('/') + 1);
+    }
+}
@@ -0,0 +1,73 @@
+package pt.up.fe.comp2024.symboltable;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Symbol tables of imported classes, read from the {@link SymbolTableFile}s found in a list of directories or, if
+ * there is none, from the class files found in the directories of a classpath.
+ * <p>
+ * A table is read the first time its class is looked up, and kept, as is the absence of one. Class files are read
+ * through the {@link ClassFileCache}, which keeps them between compilations.
+ */
+public class ImportedTables {
+
+    private final List<Path> directories;
+    private final List<Path> classPath;
+    private final Map<String, Optional<JmmSymbolTable>> tables;
+
+    public ImportedTables(List<Path> directories, List<Path> classPath) {
+        this.directories = List.copyOf(directories);
+        this.classPath = List.copyOf(classPath);
+        this.tables = new ConcurrentHashMap<>();
+    }
+
+    public static ImportedTables none() {
+        return new ImportedTables(List.of(), List.of());
+    }
+
+    /**
+     * @param qualifiedName the name of the class, with its package, e.g. pt.up.Foo
+     * @return the symbol table of the class, if one is found
+     */
+    public Optional<JmmSymbolTable> get(String qualifiedName) {
+        return tables.computeIfAbsent(qualifiedName, this::load);
+    }
+
+    private Optional<JmmSymbolTable> load(String qualifiedName) {
+        var className = qualifiedName.substring(qualifiedName.lastIndexOf('.') + 1);
+        for (var directory : directories) {
+            var path = SymbolTableFile.getPath(directory, className);
+            if (!Files.isRegularFile(path)) {
+                continue;
+            }
+
+            try {
+                return SymbolTableFile.read(path);
+            } catch (IOException e) {
+                throw new RuntimeException("Could not read symbol table '" + path + "'", e);
+            }
+        }
+
+        var classFileName = qualifiedName.replace('.', '/') + ".class";
+        for (var directory : classPath) {
+            var path = directory.resolve(classFileName);
+            if (!Files.isRegularFile(path)) {
+                continue;
+            }
+
+            try {
+                return ClassFileCache.get(path);
+            } catch (IOException e) {
+                throw new RuntimeException("Could not read class file '" + path + "'", e);
+            }
+        }
+
+        return Optional.empty();
+    }
+}
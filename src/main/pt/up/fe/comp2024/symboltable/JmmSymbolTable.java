@@ -3,11 +3,16 @@ package pt.up.fe.comp2024.symboltable;
 import pt.up.fe.comp.jmm.analysis.table.Symbol;
 import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
 import pt.up.fe.comp.jmm.analysis.table.Type;
+import pt.up.fe.comp.jmm.ast.JmmNode;
 import pt.up.fe.comp2024.ast.TypeUtils;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
 public class JmmSymbolTable implements SymbolTable {
 
@@ -20,6 +25,27 @@ public class JmmSymbolTable implements SymbolTable {
     private final Map<String, List<Symbol>> params;
     private final Map<String, List<Symbol>> locals;
 
+    // Indexes of the declarations by name, so names are resolved without scanning the lists above
+    private final Map<String, Map<String, ResolvedSymbol>> localIndex;
+    private final Map<String, Map<String, ResolvedSymbol>> paramIndex;
+    private final Map<String, ResolvedSymbol> fieldIndex;
+    private final Map<String, ResolvedSymbol> importIndex;
+
+    // Methods by name, in declaration order
+    private final Map<String, List<MethodSignature>> signaturesByName;
+
+    // Declarations of the variable references of the AST, set by SymbolBinder
+    private final Map<JmmNode, ResolvedSymbol> bindings;
+
+    // Types of the expressions of the AST, set by TypeUtils.annotateTypes
+    private final Map<JmmNode, Type> exprTypes;
+
+    // Names of the imported classes with their package, by simple name, set by JmmSymbolTableBuilder
+    private final Map<String, String> qualifiedImports;
+
+    // Symbol tables of the imported classes, found when they are looked up
+    private ImportedTables importedTables;
+
     public JmmSymbolTable(String className,
                           String superClass,
                           List<String> imports,
@@ -27,7 +53,8 @@ public class JmmSymbolTable implements SymbolTable {
                           List<Symbol> fields,
                           Map<String, Type> returnTypes,
                           Map<String, List<Symbol>> params,
-                          Map<String, List<Symbol>> locals) {
+                          Map<String, List<Symbol>> locals,
+                          List<MethodSignature> signatures) {
         this.className = className;
         this.superClass = superClass;
         this.imports = imports;
@@ -36,6 +63,60 @@ public class JmmSymbolTable implements SymbolTable {
         this.returnTypes = returnTypes;
         this.params = params;
         this.locals = locals;
+
+        this.localIndex = new HashMap<>();
+        locals.forEach((method, symbols) -> localIndex.put(method, index(symbols, SymbolScope.LOCAL)));
+        this.paramIndex = new HashMap<>();
+        params.forEach((method, symbols) -> paramIndex.put(method, index(symbols, SymbolScope.PARAM)));
+        this.fieldIndex = index(fields, SymbolScope.FIELD);
+        this.importIndex = index(imports.stream().map(name -> new Symbol(TypeUtils.getType(name, false), name)).toList(),
+                SymbolScope.IMPORT);
+        this.signaturesByName = new HashMap<>();
+        for (var signature : signatures) {
+            this.signaturesByName.computeIfAbsent(signature.name(), name -> new ArrayList<>()).add(signature);
+        }
+
+        this.bindings = new IdentityHashMap<>();
+        this.exprTypes = new IdentityHashMap<>();
+        this.qualifiedImports = new HashMap<>();
+        this.importedTables = ImportedTables.none();
+    }
+
+    /**
+     * @param table
+     * @return the table itself if it is a JmmSymbolTable, or an indexed copy of it
+     */
+    public static JmmSymbolTable of(SymbolTable table) {
+        if (table instanceof JmmSymbolTable jmmTable) {
+            return jmmTable;
+        }
+
+        Map<String, Type> returnTypes = new HashMap<>();
+        Map<String, List<Symbol>> params = new HashMap<>();
+        Map<String, List<Symbol>> locals = new HashMap<>();
+        List<MethodSignature> signatures = new ArrayList<>();
+        for (var method : table.getMethods()) {
+            returnTypes.put(method, table.getReturnType(method));
+            params.put(method, table.getParameters(method));
+            locals.put(method, table.getLocalVariables(method));
+            signatures.add(MethodSignature.of(method,
+                    table.getParameters(method).stream().map(Symbol::getType).toList(),
+                    table.getReturnType(method)));
+        }
+
+        return new JmmSymbolTable(table.getClassName(), table.getSuper(), table.getImports(), table.getMethods(),
+                table.getFields(), returnTypes, params, locals, signatures);
+    }
+
+    private static Map<String, ResolvedSymbol> index(List<Symbol> symbols, SymbolScope scope) {
+        Map<String, ResolvedSymbol> index = new HashMap<>();
+
+        // The first declaration of a name is the one found when scanning the list
+        for (var symbol : symbols) {
+            index.putIfAbsent(symbol.getName(), new ResolvedSymbol(symbol, scope));
+        }
+
+        return index;
     }
 
     @Override
@@ -65,9 +146,9 @@ public class JmmSymbolTable implements SymbolTable {
 
     @Override
     public Type getReturnType(String methodSignature) {
-        // TODO: Simple implementation that needs to be expanded
+        // Return types are interned when the table is built, so they are returned as they are
         Type returnType = returnTypes.get(methodSignature);
-        return returnType == null ? new Type(TypeUtils.getImportedTypeName(), false) : new Type(returnType.getName(), returnType.isArray());
+        return returnType == null ? TypeUtils.getImportedType() : returnType;
     }
 
     @Override
@@ -80,4 +161,105 @@ public class JmmSymbolTable implements SymbolTable {
         return Collections.unmodifiableList(locals.get(methodSignature));
     }
 
+    /**
+     * Resolves a name used in a method, looking for a local variable, a parameter, a field and an imported class, in
+     * this order.
+     *
+     * @param methodSignature the method the name is used in, or null if it is not used in a method
+     * @param name
+     * @return
+     */
+    public Optional<ResolvedSymbol> resolve(String methodSignature, String name) {
+        var resolved = methodSignature == null ? null : getIndexed(localIndex, methodSignature, name);
+        if (resolved == null && methodSignature != null) {
+            resolved = getIndexed(paramIndex, methodSignature, name);
+        }
+        if (resolved == null) {
+            resolved = fieldIndex.get(name);
+        }
+        if (resolved == null) {
+            resolved = importIndex.get(name);
+        }
+
+        return Optional.ofNullable(resolved);
+    }
+
+    public Optional<Symbol> getLocalVariable(String methodSignature, String name) {
+        return Optional.ofNullable(getIndexed(localIndex, methodSignature, name)).map(ResolvedSymbol::symbol);
+    }
+
+    public Optional<Symbol> getParameter(String methodSignature, String name) {
+        return Optional.ofNullable(getIndexed(paramIndex, methodSignature, name)).map(ResolvedSymbol::symbol);
+    }
+
+    public Optional<Symbol> getField(String name) {
+        return Optional.ofNullable(fieldIndex.get(name)).map(ResolvedSymbol::symbol);
+    }
+
+    public boolean isImport(String name) {
+        return importIndex.containsKey(name);
+    }
+
+    public void setImportedTables(ImportedTables importedTables) {
+        this.importedTables = importedTables;
+    }
+
+    /**
+     * @param name
+     * @return the symbol table of an imported class, if it was found
+     */
+    public Optional<JmmSymbolTable> getImportedTable(String name) {
+        if (!isImport(name)) {
+            return Optional.empty();
+        }
+
+        return importedTables.get(qualifiedImports.getOrDefault(name, name));
+    }
+
+    void putQualifiedImport(String name, String qualifiedName) {
+        qualifiedImports.put(name, qualifiedName);
+    }
+
+    /**
+     * @param name
+     * @return the methods with the given name, in declaration order
+     */
+    public List<MethodSignature> getMethodSignatures(String name) {
+        return signaturesByName.getOrDefault(name, List.of());
+    }
+
+    public boolean hasMethod(String name) {
+        return signaturesByName.containsKey(name);
+    }
+
+    /**
+     * @param varRef
+     * @return the declaration the variable reference was bound to by {@link SymbolBinder}, if any
+     */
+    public Optional<ResolvedSymbol> getBinding(JmmNode varRef) {
+        return Optional.ofNullable(bindings.get(varRef));
+    }
+
+    void bind(JmmNode varRef, ResolvedSymbol resolved) {
+        bindings.put(varRef, resolved);
+    }
+
+    /**
+     * @param expr
+     * @return the type of the expression stored by {@link TypeUtils#annotateTypes}, or null if it was not stored
+     */
+    public Type getExprType(JmmNode expr) {
+        return exprTypes.get(expr);
+    }
+
+    public void putExprType(JmmNode expr, Type type) {
+        exprTypes.put(expr, type);
+    }
+
+    private static ResolvedSymbol getIndexed(Map<String, Map<String, ResolvedSymbol>> index, String methodSignature,
+                                             String name) {
+        var methodIndex = index.get(methodSignature);
+        return methodIndex == null ? null : methodIndex.get(name);
+    }
+
 }
@@ -4,8 +4,10 @@ import pt.up.fe.comp.jmm.analysis.table.Symbol;
 import pt.up.fe.comp.jmm.analysis.table.Type;
 import pt.up.fe.comp.jmm.ast.JmmNode;
 import pt.up.fe.comp2024.ast.Kind;
+import pt.up.fe.comp2024.ast.TypeUtils;
 import pt.up.fe.specs.util.SpecsCheck;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -33,8 +35,65 @@ public class JmmSymbolTableBuilder {
         var returnTypes = buildReturnTypes(classDecl);
         var params = buildParams(classDecl);
         var locals = buildLocals(classDecl);
+        var signatures = buildSignatures(classDecl);
 
-        return new JmmSymbolTable(className, superClass, imports, methods, fields, returnTypes, params, locals);
+        var table = new JmmSymbolTable(className, superClass, imports, methods, fields, returnTypes, params, locals,
+                signatures);
+        buildQualifiedImports(root).forEach(table::putQualifiedImport);
+
+        return table;
+    }
+
+    /**
+     * Builds the symbol table of a program where a member of the class was replaced, as by
+     * {@link pt.up.fe.comp2024.parser.JmmIncrementalParser}, reusing the entries of the previous table for every method
+     * but the new member.
+     *
+     * @param previous the symbol table of the program before the member was replaced
+     * @param root
+     * @param member   the new member
+     * @return
+     */
+    public static JmmSymbolTable update(JmmSymbolTable previous, JmmNode root, JmmNode member) {
+        var classDecl = root.getChildren(CLASS_DECL).get(0);
+        var imports = buildImports(root);
+        var methods = buildMethods(classDecl);
+
+        // Methods are kept by name, so a class that declares a name twice is built again
+        if (!imports.equals(previous.getImports()) || methods.stream().distinct().count() != methods.size()) {
+            return build(root);
+        }
+
+        String superClass = classDecl.getOptional("superClass").isPresent() ? classDecl.get("superClass") : "";
+        String className = classDecl.get("name");
+        var fields = member.isInstance(VAR_DECL) ? buildFields(classDecl) : previous.getFields();
+
+        Map<String, Type> returnTypes = new HashMap<>();
+        Map<String, List<Symbol>> params = new HashMap<>();
+        Map<String, List<Symbol>> locals = new HashMap<>();
+        List<MethodSignature> signatures = new ArrayList<>();
+        for (var method : classDecl.getChildren(METHOD_DECL)) {
+            var name = method.get("name");
+
+            if (method != member && previous.hasMethod(name)) {
+                returnTypes.put(name, previous.getReturnType(name));
+                params.put(name, previous.getParameters(name));
+                locals.put(name, previous.getLocalVariables(name));
+                signatures.addAll(previous.getMethodSignatures(name));
+                continue;
+            }
+
+            returnTypes.put(name, getReturnType(method));
+            params.put(name, getParamsList(method));
+            locals.put(name, getLocalsList(method));
+            signatures.add(getSignature(method));
+        }
+
+        var table = new JmmSymbolTable(className, superClass, imports, methods, fields, returnTypes, params, locals,
+                signatures);
+        buildQualifiedImports(root).forEach(table::putQualifiedImport);
+
+        return table;
     }
 
     private static List<String> buildImports(JmmNode root) {
@@ -44,6 +103,22 @@ public class JmmSymbolTableBuilder {
                 .toList();
     }
 
+    private static Map<String, String> buildQualifiedImports(JmmNode root) {
+
+        Map<String, String> map = new HashMap<>();
+
+        // The parts of the name are printed as a list, e.g. [pt, up, Foo]
+        for (var importDecl : root.getChildren(IMPORT_DECL)) {
+            var name = importDecl.getOptional("name")
+                    .map(parts -> parts.replaceAll("[\\[\\]\\s]", "").replace(',', '.'))
+                    .filter(qualifiedName -> !qualifiedName.isEmpty())
+                    .orElse(importDecl.get("ID"));
+            map.putIfAbsent(importDecl.get("ID"), name);
+        }
+
+        return map;
+    }
+
     private static Map<String, Type> buildReturnTypes(JmmNode classDecl) {
         // TODO: Simple implementation that needs to be expanded
 
@@ -51,17 +126,18 @@ public class JmmSymbolTableBuilder {
 
         classDecl.getChildren(METHOD_DECL)
                 .stream()
-                .forEach(method -> map.put(
-                        method.get("name"),
-                        new Type(
-                                method.getJmmChild(0).get("name"),
-                                Boolean.parseBoolean(method.getJmmChild(0).get("isArray"))
-                        )
-                ));
+                .forEach(method -> map.put(method.get("name"), getReturnType(method)));
 
         return map;
     }
 
+    private static Type getReturnType(JmmNode methodDecl) {
+        return TypeUtils.getType(
+                methodDecl.getJmmChild(0).get("name"),
+                Boolean.parseBoolean(methodDecl.getJmmChild(0).get("isArray"))
+        );
+    }
+
     private static Map<String, List<Symbol>> buildParams(JmmNode classDecl) {
         // TODO: Simple implementation that needs to be expanded
 
@@ -86,6 +162,21 @@ public class JmmSymbolTableBuilder {
         return map;
     }
 
+    private static List<MethodSignature> buildSignatures(JmmNode classDecl) {
+
+        return classDecl.getChildren(METHOD_DECL).stream()
+                .map(JmmSymbolTableBuilder::getSignature)
+                .toList();
+    }
+
+    private static MethodSignature getSignature(JmmNode methodDecl) {
+        return MethodSignature.of(
+                methodDecl.get("name"),
+                getParamsList(methodDecl).stream().map(Symbol::getType).toList(),
+                getReturnType(methodDecl)
+        );
+    }
+
     private static List<String> buildMethods(JmmNode classDecl) {
 
         return classDecl.getChildren(METHOD_DECL).stream()
@@ -97,7 +188,7 @@ public class JmmSymbolTableBuilder {
 
         return classDecl.getChildren(VAR_DECL)
                 .stream()
-                .map(varDecl -> new Symbol(new Type(
+                .map(varDecl -> new Symbol(TypeUtils.getType(
                         varDecl.getJmmChild(0).get("name"),
                         Boolean.parseBoolean(varDecl.getJmmChild(0).get("isArray"))
                 ), varDecl.get("name")))
@@ -109,7 +200,7 @@ public class JmmSymbolTableBuilder {
 
         return methodDecl.getChildren(VAR_DECL)
                 .stream()
-                .map(varDecl -> new Symbol(new Type(
+                .map(varDecl -> new Symbol(TypeUtils.getType(
                         varDecl.getJmmChild(0).get("name"),
                         Boolean.parseBoolean(varDecl.getJmmChild(0).get("isArray"))
                 ), varDecl.get("name")))
@@ -121,7 +212,7 @@ public class JmmSymbolTableBuilder {
 
         return methodDecl.getChildren(PARAM)
                 .stream()
-                .map(param -> new Symbol(new Type(
+                .map(param -> new Symbol(TypeUtils.getType(
                         param.getJmmChild(0).get("name"),
                         Boolean.parseBoolean(param.getJmmChild(0).get("isArray"))
                 ), param.get("name"))).toList();
@@ -0,0 +1,19 @@
+package pt.up.fe.comp2024.symboltable;
+
+import pt.up.fe.comp.jmm.analysis.table.Type;
+
+import java.util.List;
+
+/**
+ * A method of the class, with its name, parameter types and return type.
+ *
+ * @param name
+ * @param parameterTypes
+ * @param returnType
+ */
+public record MethodSignature(String name, List<Type> parameterTypes, Type returnType) {
+
+    public static MethodSignature of(String name, List<Type> parameterTypes, Type returnType) {
+        return new MethodSignature(name, List.copyOf(parameterTypes), returnType);
+    }
+}
@@ -0,0 +1,12 @@
+package pt.up.fe.comp2024.symboltable;
+
+import pt.up.fe.comp.jmm.analysis.table.Symbol;
+
+/**
+ * The declaration a name refers to. An imported class is a symbol whose type is the class itself.
+ *
+ * @param symbol
+ * @param scope
+ */
+public record ResolvedSymbol(Symbol symbol, SymbolScope scope) {
+}
@@ -0,0 +1,63 @@
+package pt.up.fe.comp2024.symboltable;
+
+import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+
+import java.util.Optional;
+
+import static pt.up.fe.comp2024.ast.Kind.*;
+
+/**
+ * Binds each variable reference, including the targets of assignments, to the declaration it refers to.
+ * <p>
+ * Names are resolved once, after the symbol table is built, so later stages get the declaration of a reference
+ * instead of searching the symbol table again. Bindings are kept by the symbol table, by node identity, and not as
+ * attributes of the nodes, which are printed with the nodes in reports. References to names that are not declared are
+ * left unbound.
+ */
+public class SymbolBinder {
+
+    public static void bind(JmmNode root, SymbolTable table) {
+        if (!(table instanceof JmmSymbolTable jmmTable)) {
+            return;
+        }
+
+        for (var method : root.getDescendants(METHOD_DECL)) {
+            var methodName = method.get("name");
+
+            for (var varRef : method.getDescendants(VAR_REF_EXPR)) {
+                jmmTable.resolve(methodName, varRef.get("name"))
+                        .ifPresent(resolved -> jmmTable.bind(varRef, resolved));
+            }
+        }
+    }
+
+    /**
+     * @param varRef
+     * @param table
+     * @return the declaration the variable reference was bound to, if any
+     */
+    public static Optional<ResolvedSymbol> getBinding(JmmNode varRef, SymbolTable table) {
+        if (!(table instanceof JmmSymbolTable jmmTable)) {
+            return Optional.empty();
+        }
+
+        return jmmTable.getBinding(varRef);
+    }
+
+    /**
+     * @param varRef
+     * @param table
+     * @return the declaration the variable reference was bound to, or that its name resolves to in its method if it
+     * was not bound
+     */
+    public static Optional<ResolvedSymbol> resolve(JmmNode varRef, SymbolTable table) {
+        var binding = getBinding(varRef, table);
+        if (binding.isPresent()) {
+            return binding;
+        }
+
+        var method = varRef.getAncestor(METHOD_DECL).map(methodDecl -> methodDecl.get("name")).orElse(null);
+        return JmmSymbolTable.of(table).resolve(method, varRef.get("name"));
+    }
+}
@@ -0,0 +1,11 @@
+package pt.up.fe.comp2024.symboltable;
+
+/**
+ * Where a name used in a method is declared.
+ */
+public enum SymbolScope {
+    LOCAL,
+    PARAM,
+    FIELD,
+    IMPORT
+}
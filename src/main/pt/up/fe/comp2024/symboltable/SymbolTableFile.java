@@ -0,0 +1,140 @@
+package pt.up.fe.comp2024.symboltable;
+
+import pt.up.fe.comp.jmm.analysis.table.Symbol;
+import pt.up.fe.comp.jmm.analysis.table.Type;
+import pt.up.fe.comp2024.ast.TypeUtils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Reads and writes the symbol table of a class in a compact binary format, so units that import the class get the
+ * types of its methods without parsing its source.
+ * <p>
+ * Only what other units can use is written: the class, its superclass, imports, fields, and the name, return type and
+ * parameters of each method. Local variables are not.
+ */
+public class SymbolTableFile {
+
+    public static final String EXTENSION = ".symbols";
+
+    private static final int MAGIC = 0x4A4D4D54; // JMMT
+    private static final int VERSION = 1;
+
+    /**
+     * @param directory
+     * @param className
+     * @return the path of the symbol table of a class in a directory
+     */
+    public static Path getPath(Path directory, String className) {
+        return directory.resolve(className + EXTENSION);
+    }
+
+    public static void write(JmmSymbolTable table, Path path) throws IOException {
+        try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+
+            out.writeUTF(table.getClassName());
+            out.writeUTF(table.getSuper() == null ? "" : table.getSuper());
+
+            out.writeInt(table.getImports().size());
+            for (var importName : table.getImports()) {
+                out.writeUTF(importName);
+            }
+
+            writeSymbols(out, table.getFields());
+
+            out.writeInt(table.getMethods().size());
+            for (var method : table.getMethods()) {
+                out.writeUTF(method);
+                writeType(out, table.getReturnType(method));
+                writeSymbols(out, table.getParameters(method));
+            }
+        }
+    }
+
+    /**
+     * @param path
+     * @return the symbol table in the file, or empty if the file is not a symbol table of this version
+     * @throws IOException
+     */
+    public static Optional<JmmSymbolTable> read(Path path) throws IOException {
+        try (var in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (in.readInt() != MAGIC || in.readShort() != VERSION) {
+                return Optional.empty();
+            }
+
+            var className = in.readUTF();
+            var superClass = in.readUTF();
+
+            var importCount = in.readInt();
+            List<String> imports = new ArrayList<>(importCount);
+            for (int i = 0; i < importCount; i++) {
+                imports.add(in.readUTF());
+            }
+
+            var fields = readSymbols(in);
+
+            var methodCount = in.readInt();
+            List<String> methods = new ArrayList<>(methodCount);
+            Map<String, Type> returnTypes = new HashMap<>();
+            Map<String, List<Symbol>> params = new HashMap<>();
+            Map<String, List<Symbol>> locals = new HashMap<>();
+            List<MethodSignature> signatures = new ArrayList<>(methodCount);
+            for (int i = 0; i < methodCount; i++) {
+                var method = in.readUTF();
+                var returnType = readType(in);
+                var methodParams = readSymbols(in);
+
+                methods.add(method);
+                returnTypes.put(method, returnType);
+                params.put(method, methodParams);
+                locals.put(method, List.of());
+                signatures.add(MethodSignature.of(method, methodParams.stream().map(Symbol::getType).toList(),
+                        returnType));
+            }
+
+            return Optional.of(new JmmSymbolTable(className, superClass, imports, methods, fields, returnTypes, params,
+                    locals, signatures));
+        }
+    }
+
+    private static void writeSymbols(DataOutputStream out, List<Symbol> symbols) throws IOException {
+        out.writeInt(symbols.size());
+        for (var symbol : symbols) {
+            writeType(out, symbol.getType());
+            out.writeUTF(symbol.getName());
+        }
+    }
+
+    private static List<Symbol> readSymbols(DataInputStream in) throws IOException {
+        var count = in.readInt();
+        List<Symbol> symbols = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            var type = readType(in);
+            symbols.add(new Symbol(type, in.readUTF()));
+        }
+        return symbols;
+    }
+
+    private static void writeType(DataOutputStream out, Type type) throws IOException {
+        out.writeUTF(type.getName());
+        out.writeBoolean(type.isArray());
+    }
+
+    private static Type readType(DataInputStream in) throws IOException {
+        var name = in.readUTF();
+        return TypeUtils.getType(name, in.readBoolean());
+    }
+}
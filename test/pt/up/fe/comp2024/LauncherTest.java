@@ -0,0 +1,67 @@
+package pt.up.fe.comp2024;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class LauncherTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path writeClass(String code) throws IOException {
+        var file = folder.getRoot().toPath().resolve("Simple.jmm");
+        Files.writeString(file, code);
+        return file;
+    }
+
+    private static long countSymbolTables(Path directory) throws IOException {
+        try (var files = Files.walk(directory)) {
+            return files.filter(file -> file.toString().endsWith(".symbols")).count();
+        }
+    }
+
+    @Test
+    public void symbolTableWrittenToDirectory() throws IOException {
+        var input = writeClass("class Simple { public int get() { return 1; } }");
+        var output = folder.getRoot().toPath().resolve("out");
+
+        Launcher.main(new String[]{"-i=" + input, "-s=" + output});
+
+        assertTrue(Files.isRegularFile(output.resolve("Simple.symbols")));
+        assertEquals(1, countSymbolTables(folder.getRoot().toPath()));
+    }
+
+    @Test
+    public void symbolTableNotWrittenByDefault() throws IOException {
+        var input = writeClass("class Simple { public int get() { return 1; } }");
+
+        Launcher.main(new String[]{"-i=" + input});
+
+        assertEquals(0, countSymbolTables(folder.getRoot().toPath()));
+    }
+
+    @Test
+    public void symbolTableNotWrittenOnErrors() throws IOException {
+        var input = writeClass("class Simple { public int get() { return true; } }");
+        var output = folder.getRoot().toPath().resolve("out");
+
+        try {
+            Launcher.main(new String[]{"-i=" + input, "-s=" + output});
+            fail("Expected the compilation to fail");
+        } catch (RuntimeException e) {
+            // The semantic error is reported
+        }
+
+        assertFalse(Files.exists(output.resolve("Simple.symbols")));
+    }
+}
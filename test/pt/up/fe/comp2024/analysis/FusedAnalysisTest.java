@@ -0,0 +1,60 @@
+package pt.up.fe.comp2024.analysis;
+
+import org.junit.Test;
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp.jmm.report.Stage;
+import pt.up.fe.comp2024.parser.JmmParserImpl;
+import pt.up.fe.comp2024.parser.ParserTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+public class FusedAnalysisTest {
+
+    private static final String SEMANTIC_RESOURCES = "semanticanalysis";
+
+    /**
+     * Runs each pass on its own over the whole AST, one after the other.
+     */
+    private static List<String> analyzeSequentially(JmmAnalysisImpl analysis, String code) {
+        var parserResult = new JmmParserImpl().parse(code, Map.of());
+        var semanticsResult = analysis.semanticAnalysis(parserResult);
+
+        List<Report> reports = new ArrayList<>();
+        for (var supplier : analysis.getAnalysisPasses()) {
+            var pass = supplier.get();
+            try {
+                reports.addAll(pass.analyze(semanticsResult.getRootNode(), semanticsResult.getSymbolTable()));
+            } catch (Exception e) {
+                reports.add(Report.newError(Stage.SEMANTIC, -1, -1,
+                        "Problem while executing analysis pass '" + pass.getClass() + "'", e));
+            }
+        }
+
+        return reports.stream().map(Report::toString).toList();
+    }
+
+    private static List<String> analyze(JmmAnalysisImpl analysis, String code, Map<String, String> config) {
+        var parserResult = new JmmParserImpl().parse(code, config);
+        return analysis.semanticAnalysis(parserResult).getReports().stream().map(Report::toString).toList();
+    }
+
+    @Test
+    public void sameReportsAsSequential() {
+        var analysis = new JmmAnalysisImpl();
+        var files = ParserTestUtils.getJmmResources().stream()
+                .filter(file -> file.toString().contains(SEMANTIC_RESOURCES))
+                .toList();
+
+        for (var file : files) {
+            var code = ParserTestUtils.read(file);
+            var sequential = analyzeSequentially(analysis, code);
+
+            assertEquals(file.toString(), sequential, analyze(analysis, code, Map.of()));
+            assertEquals(file.toString(), sequential, analyze(analysis, code, Map.of("parallel", "true")));
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package pt.up.fe.comp2024.ast;
+
+import org.junit.Test;
+import pt.up.fe.comp2024.parser.JmmParserImpl;
+import pt.up.fe.comp2024.parser.ParserTestUtils;
+
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class CompactAstTest {
+
+    @Test
+    public void sameAstAsParser() {
+        var parser = new JmmParserImpl();
+
+        for (var file : ParserTestUtils.getJmmResources()) {
+            var result = parser.parse(ParserTestUtils.read(file), Map.of());
+            if (result.getRootNode() == null) {
+                continue;
+            }
+
+            var compactAst = CompactAst.from(result.getRootNode());
+            assertEquals(file.toString(), ParserTestUtils.dump(result.getRootNode()),
+                    ParserTestUtils.dump(compactAst.getRoot()));
+
+            for (var node : compactAst.getRoot().getDescendants()) {
+                assertSame(file.toString(), node, node.getParent().getChildren().get(node.getIndexOfSelf()));
+            }
+        }
+    }
+
+    @Test
+    public void attributesPutInParallel() {
+        var code = ParserTestUtils.read(ParserTestUtils.getJmmResources().get(0));
+        var root = CompactAst.from(new JmmParserImpl().parse(code, Map.of()).getRootNode()).getRoot();
+        var nodes = root.getDescendants();
+
+        IntStream.range(0, 8).parallel().forEach(thread ->
+                nodes.forEach(node -> node.putObject("thread" + thread, thread)));
+
+        for (var node : nodes) {
+            for (int thread = 0; thread < 8; thread++) {
+                assertEquals(thread, node.getObject("thread" + thread));
+            }
+        }
+    }
+}
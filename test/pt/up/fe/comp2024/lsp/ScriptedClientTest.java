@@ -0,0 +1,116 @@
+package pt.up.fe.comp2024.lsp;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.junit.Test;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ScriptedClientTest {
+
+    /**
+     * Runs a script against a server in this process.
+     *
+     * @param resource
+     * @return the messages the server sent, in order
+     */
+    private static List<JsonObject> runScript(String resource) throws Exception {
+        var output = new ByteArrayOutputStream();
+        var script = SpecsIo.getResource("pt/up/fe/comp2024/lsp/" + resource).lines().toList();
+
+        var exitCode = ScriptedClient.runInProcess(script, new PrintStream(output, true, StandardCharsets.UTF_8));
+        assertEquals(0, exitCode);
+
+        return output.toString(StandardCharsets.UTF_8).lines()
+                .map(line -> JsonParser.parseString(line).getAsJsonObject())
+                .toList();
+    }
+
+    private static JsonObject getResponse(List<JsonObject> messages, int id) {
+        return messages.stream()
+                .filter(message -> message.has("id") && message.get("id").getAsInt() == id)
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("No response to request " + id + " in " + messages));
+    }
+
+    private static List<JsonObject> getDiagnostics(List<JsonObject> messages) {
+        return messages.stream()
+                .filter(message -> message.has("method")
+                        && message.get("method").getAsString().equals("textDocument/publishDiagnostics"))
+                .map(message -> message.getAsJsonObject("params"))
+                .toList();
+    }
+
+    private static String toRange(JsonObject range) {
+        var start = range.getAsJsonObject("start");
+        var end = range.getAsJsonObject("end");
+        return start.get("line") + ":" + start.get("character") + "-" + end.get("line") + ":" + end.get("character");
+    }
+
+    @Test
+    public void hoverAndDefinition() throws Exception {
+        var messages = runScript("HoverAndDefinition.script");
+
+        assertTrue(getResponse(messages, 1).getAsJsonObject("result").getAsJsonObject("capabilities")
+                .get("hoverProvider").getAsBoolean());
+
+        var hover = getResponse(messages, 2).getAsJsonObject("result");
+        assertEquals("```java\n(parameter) int a\n```", hover.getAsJsonObject("contents").get("value").getAsString());
+        assertEquals("4:14-4:15", toRange(hover.getAsJsonObject("range")));
+
+        // int sum; in the body of add
+        var definition = getResponse(messages, 3).getAsJsonObject("result");
+        assertEquals("untitled:Hello.jmm", definition.get("uri").getAsString());
+        assertEquals("3:8-3:16", toRange(definition.getAsJsonObject("range")));
+
+        // The edit is seen by requests before its diagnostics are published
+        var hoverAfterEdit = getResponse(messages, 4).getAsJsonObject("result");
+        assertEquals("```java\n(local variable) int sum\n```",
+                hoverAfterEdit.getAsJsonObject("contents").get("value").getAsString());
+
+        var diagnostics = getDiagnostics(messages);
+        assertEquals(2, diagnostics.size());
+        assertEquals(1, diagnostics.get(0).get("version").getAsInt());
+        assertEquals(0, diagnostics.get(0).getAsJsonArray("diagnostics").size());
+
+        // Published by the shutdown, before its response
+        assertEquals(2, diagnostics.get(1).get("version").getAsInt());
+        var error = diagnostics.get(1).getAsJsonArray("diagnostics").get(0).getAsJsonObject();
+        assertEquals("Variable 'c' does not exist.", error.get("message").getAsString());
+        assertEquals("4:18-4:19", toRange(error.getAsJsonObject("range")));
+        var shutdown = getResponse(messages, 5);
+        assertEquals(diagnostics.get(1), messages.get(messages.indexOf(shutdown) - 1).getAsJsonObject("params"));
+        assertTrue(shutdown.get("result").isJsonNull());
+    }
+
+    @Test
+    public void syntaxErrors() throws Exception {
+        var messages = runScript("SyntaxErrors.script");
+
+        var diagnostics = getDiagnostics(messages);
+        assertEquals(3, diagnostics.size());
+
+        // The ';' where the right operand should be
+        var error = diagnostics.get(0).getAsJsonArray("diagnostics").get(0).getAsJsonObject();
+        assertEquals(1, error.get("severity").getAsInt());
+        assertEquals("2:18-2:19", toRange(error.getAsJsonObject("range")));
+
+        // Nothing is analysed in a document with syntax errors
+        assertTrue(getResponse(messages, 2).get("result").isJsonNull());
+
+        // Fixed by the edit, and cleared when the document is closed
+        assertEquals(2, diagnostics.get(1).get("version").getAsInt());
+        assertEquals(0, diagnostics.get(1).getAsJsonArray("diagnostics").size());
+        assertEquals(0, diagnostics.get(2).getAsJsonArray("diagnostics").size());
+
+        assertEquals(-32601, getResponse(messages, 3).getAsJsonObject("error").get("code").getAsInt());
+        assertTrue(getResponse(messages, 4).get("result").isJsonNull());
+    }
+}
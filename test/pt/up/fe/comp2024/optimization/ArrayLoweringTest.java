@@ -0,0 +1,52 @@
+package pt.up.fe.comp2024.optimization;
+
+import org.junit.Test;
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.specs.util.SpecsIo;
+import pt.up.fe.specs.util.SpecsStrings;
+import utils.ProjectTestUtils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ArrayLoweringTest {
+
+    private static final String RESOURCE = "pt/up/fe/comp2024/optimization/ArrayLowering.jmm";
+
+    @Test
+    public void arrayLoweringRuns() {
+        var result = TestUtils.backend(SpecsIo.getResource(RESOURCE));
+        TestUtils.noErrors(result.getReports());
+
+        // a = [3, 3, 112, 9, 12] after the updates, and a[0] is read before set(a) overwrites it
+        assertEquals("5\n3\n112\n21\n6\n6", SpecsStrings.normalizeFileContents(result.run(), true));
+    }
+
+    @Test
+    public void arrayUpdateReusesReferenceAndIndex() {
+        var result = TestUtils.backend(SpecsIo.getResource(RESOURCE));
+        var jasminCode = result.getJasminCode();
+        var main = jasminCode.substring(jasminCode.indexOf(".method public static main"));
+
+        // a[2] = a[2] + 10 and a[i] = 7 * a[i] load the element through the reference and index of the store
+        assertEquals(2, main.split("\\bdup2\\b", -1).length - 1);
+        assertTrue(ProjectTestUtils.hasBytecode("arraylength", main));
+        assertTrue(ProjectTestUtils.hasBytecode("newarray int", main));
+    }
+
+    @Test
+    public void arrayOperandsAreNotSpilled() {
+        var ollir = TestUtils.optimize(SpecsIo.getResource(RESOURCE)).getOllirCode();
+
+        // a[i] + a[i + 1] reads both elements directly in the operation
+        assertTrue(ollir, ollir.matches("(?s).*a\\[i\\.i32]\\.i32 \\+\\.i32 a\\[tmp\\d+\\.i32]\\.i32;.*"));
+    }
+
+    @Test
+    public void arrayOperandsAreReadBeforeSideEffects() {
+        var ollir = TestUtils.optimize(SpecsIo.getResource(RESOURCE)).getOllirCode();
+
+        // a[0] + lowering.set(a) spills a[0] before the call instead of reading it in the operation
+        assertTrue(ollir, ollir.matches("(?s).*(tmp\\d+)\\.i32 :=\\.i32 a\\[0\\.i32]\\.i32;[^\\n]*\\n[^\\n]*\"set\".*\\1\\.i32 \\+\\.i32.*"));
+    }
+}
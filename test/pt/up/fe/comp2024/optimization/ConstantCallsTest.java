@@ -0,0 +1,62 @@
+package pt.up.fe.comp2024.optimization;
+
+import org.junit.Test;
+import org.specs.comp.ollir.CallInstruction;
+import org.specs.comp.ollir.LiteralElement;
+import pt.up.fe.comp.CpUtils;
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.specs.util.SpecsIo;
+import pt.up.fe.specs.util.SpecsStrings;
+
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ConstantCallsTest {
+
+    private static final String RESOURCE = "pt/up/fe/comp2024/optimization/ConstantCalls.jmm";
+
+    private static final Map<String, String> CONFIG = Map.of("optimize", "true");
+
+    private static boolean calls(OllirResult result, String methodName, String callee) {
+        return CpUtils.getInstructions(CallInstruction.class, CpUtils.getMethod(result, methodName)).stream()
+                .anyMatch(call -> ((LiteralElement) call.getMethodName()).getLiteral().equals("\"" + callee + "\""));
+    }
+
+    private static boolean callsAnswer(OllirResult result, String methodName) {
+        return calls(result, methodName, "answer");
+    }
+
+    @Test
+    public void callOnThisIsFolded() {
+        var result = TestUtils.optimize(SpecsIo.getResource(RESOURCE), CONFIG);
+
+        assertFalse(result.getOllirCode(), callsAnswer(result, "folded"));
+    }
+
+    @Test
+    public void callOnVariableIsKept() {
+        var result = TestUtils.optimize(SpecsIo.getResource(RESOURCE), CONFIG);
+
+        // other is null, so the call must still throw
+        assertTrue(result.getOllirCode(), callsAnswer(result, "kept"));
+    }
+
+    @Test
+    public void callThatMayThrowIsKept() {
+        var result = TestUtils.optimize(SpecsIo.getResource(RESOURCE), CONFIG);
+
+        // ignores() returns 1, but only after other.answer() throws
+        assertTrue(result.getOllirCode(), calls(result, "run", "ignores"));
+    }
+
+    @Test
+    public void constantCallsRun() {
+        var result = TestUtils.backend(SpecsIo.getResource(RESOURCE), CONFIG);
+
+        assertEquals("43", SpecsStrings.normalizeFileContents(result.run(), true));
+    }
+}
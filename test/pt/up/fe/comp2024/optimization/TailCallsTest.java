@@ -0,0 +1,50 @@
+package pt.up.fe.comp2024.optimization;
+
+import org.junit.Test;
+import org.specs.comp.ollir.CallInstruction;
+import org.specs.comp.ollir.GotoInstruction;
+import org.specs.comp.ollir.LiteralElement;
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.comp.CpUtils;
+import pt.up.fe.specs.util.SpecsIo;
+import pt.up.fe.specs.util.SpecsStrings;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TailCallsTest {
+
+    private static final String RESOURCE = "pt/up/fe/comp2024/optimization/TailCalls.jmm";
+
+    @Test
+    public void tailCallsRun() {
+        var result = TestUtils.backend(SpecsIo.getResource(RESOURCE));
+        TestUtils.noErrors(result.getReports());
+
+        assertEquals("6\n1003\n310\n120\n1000000", SpecsStrings.normalizeFileContents(result.run(), true));
+    }
+
+    @Test
+    public void tailCallsBecomeJumps() {
+        var result = TestUtils.optimize(SpecsIo.getResource(RESOURCE));
+
+        for (var name : new String[]{"gcd", "swap", "factorial", "count"}) {
+            var method = CpUtils.getMethod(result, name);
+
+            assertFalse(name, CpUtils.getInstructions(GotoInstruction.class, method).isEmpty());
+            assertTrue(name, CpUtils.getInstructions(CallInstruction.class, method).stream()
+                    .noneMatch(call -> ((LiteralElement) call.getMethodName()).getLiteral().equals("\"" + name + "\"")));
+        }
+    }
+
+    @Test
+    public void dependentArgumentsGoThroughTemporaries() {
+        var ollir = TestUtils.optimize(SpecsIo.getResource(RESOURCE)).getOllirCode();
+        var swap = ollir.substring(ollir.indexOf(".method public swap"), ollir.indexOf(".method public factorial"));
+
+        // a := b and then b := a would lose a, so a is copied before the parameters are assigned
+        assertTrue(swap, swap.matches("(?s).*(tmp\\d+)\\.i32 :=\\.i32 a\\.i32;.*a\\.i32 :=\\.i32 tmp\\d+\\.i32;"
+                + ".*b\\.i32 :=\\.i32 \\1\\.i32;.*goto tailcall\\d+;.*"));
+    }
+}
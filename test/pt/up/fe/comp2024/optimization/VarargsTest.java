@@ -0,0 +1,38 @@
+package pt.up.fe.comp2024.optimization;
+
+import org.junit.Test;
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.specs.util.SpecsIo;
+import pt.up.fe.specs.util.SpecsStrings;
+
+import static org.junit.Assert.assertEquals;
+
+public class VarargsTest {
+
+    private static final String RESOURCE = "pt/up/fe/comp2024/optimization/Varargs.jmm";
+
+    private static int count(String code, String text) {
+        return code.split(text, -1).length - 1;
+    }
+
+    @Test
+    public void varargsRun() {
+        var result = TestUtils.backend(SpecsIo.getResource(RESOURCE));
+        TestUtils.noErrors(result.getReports());
+
+        // bump writes its sequence, so each call gets a new array
+        assertEquals("6\n6\n10\n0\n9\n2\n2", SpecsStrings.normalizeFileContents(result.run(), true));
+    }
+
+    @Test
+    public void constantVarargsAreShared() {
+        var ollir = TestUtils.optimize(SpecsIo.getResource(RESOURCE)).getOllirCode();
+        var run = ollir.substring(ollir.indexOf(".method public run"), ollir.indexOf(".method public static main"));
+
+        // One array for both sum(1, 2, 3), and one for sum(n, 2, 3)
+        assertEquals(run, 2, count(run, "new\\(array, 3\\.i32\\)"));
+        // One array for a, one for sum(a[0], a[1]) and one for each call of bump
+        assertEquals(run, 4, count(run, "new\\(array, 2\\.i32\\)"));
+        assertEquals(run, 1, count(run, "new\\(array, 0\\.i32\\)"));
+    }
+}
@@ -0,0 +1,33 @@
+package pt.up.fe.comp2024.parser;
+
+import org.junit.Test;
+import pt.up.fe.comp.jmm.parser.JmmParserResult;
+import pt.up.fe.comp.jmm.report.ReportType;
+
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+public class JmmDescentParserTest {
+
+    private static boolean hasErrors(JmmParserResult result) {
+        return result.getReports().stream().anyMatch(report -> report.getType() == ReportType.ERROR);
+    }
+
+    @Test
+    public void sameAstAsAntlr() {
+        var parser = new JmmParserImpl();
+
+        for (var file : ParserTestUtils.getJmmResources()) {
+            var code = ParserTestUtils.read(file);
+            var antlr = parser.parse(code, Map.of());
+            var descent = parser.parse(code, Map.of("parser", "descent"));
+
+            assertEquals(file.toString(), hasErrors(antlr), hasErrors(descent));
+            if (!hasErrors(antlr)) {
+                assertEquals(file.toString(), ParserTestUtils.dump(antlr.getRootNode()),
+                        ParserTestUtils.dump(descent.getRootNode()));
+            }
+        }
+    }
+}
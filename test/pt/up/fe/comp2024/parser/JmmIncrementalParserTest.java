@@ -0,0 +1,142 @@
+package pt.up.fe.comp2024.parser;
+
+import org.junit.Test;
+import pt.up.fe.comp.jmm.parser.JmmParserResult;
+import pt.up.fe.comp2024.parser.JmmIncrementalParser.TextEdit;
+import pt.up.fe.comp2024.symboltable.JmmSymbolTable;
+import pt.up.fe.comp2024.symboltable.JmmSymbolTableBuilder;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class JmmIncrementalParserTest {
+
+    private static final Map<String, String> CONFIG = Map.of("parser", "descent");
+
+    private static final String CODE = SpecsIo.getResource("pt/up/fe/comp2024/parser/IncrementalEdits.jmm");
+
+    /**
+     * @return the declarations of the table, with the locals and signatures of each method, which print leaves out
+     */
+    private static String dump(JmmSymbolTable table) {
+        var dump = new StringBuilder(table.print());
+        for (var method : table.getMethods()) {
+            dump.append(method).append(": ").append(table.getLocalVariables(method))
+                    .append(" ").append(table.getMethodSignatures(method)).append("\n");
+        }
+        return dump.toString();
+    }
+
+    /**
+     * Checks that updating the table of the previous AST gives the table of a full parse of the code.
+     */
+    private static JmmSymbolTable testUpdate(JmmSymbolTable previous, JmmIncrementalParser.Result result,
+                                             JmmParserResult full) {
+        var updated = JmmSymbolTableBuilder.update(previous, result.parserResult().getRootNode(), result.member());
+        assertEquals(dump(JmmSymbolTableBuilder.build(full.getRootNode())), dump(updated));
+        return updated;
+    }
+
+    /**
+     * Parses the code, applies the edit incrementally and checks that the result is the AST of a full parse of the
+     * edited code, with the same symbol table.
+     */
+    private static JmmIncrementalParser.Result testEdit(String code, String find, String replacement) {
+        var parser = new JmmParserImpl();
+        var previous = parser.parse(code, CONFIG);
+        // The AST is changed in place, so the table is built before the edit
+        var previousTable = JmmSymbolTableBuilder.build(previous.getRootNode());
+
+        var offset = code.indexOf(find);
+        assertTrue("Could not find '" + find + "'", offset >= 0);
+
+        var result = new JmmIncrementalParser().reparse(code, previous, new TextEdit(offset, find.length(),
+                replacement));
+        JmmParserResult full = parser.parse(result.code(), CONFIG);
+
+        assertEquals(code.substring(0, offset) + replacement + code.substring(offset + find.length()), result.code());
+        assertEquals(full.getReports().toString(), result.parserResult().getReports().toString());
+        assertEquals(ParserTestUtils.dump(full.getRootNode()), ParserTestUtils.dump(result.parserResult().getRootNode()));
+        if (result.isIncremental()) {
+            testUpdate(previousTable, result, full);
+        }
+
+        return result;
+    }
+
+    @Test
+    public void editInsideLine() {
+        var result = testEdit(CODE, "return x * 2;", "return x * 20 + field;");
+        assertTrue(result.isIncremental());
+    }
+
+    @Test
+    public void editAddsLines() {
+        var result = testEdit(CODE, "i = i + 1;", "i = i + 1;\n            total = total - 1;\n");
+        assertTrue(result.isIncremental());
+    }
+
+    @Test
+    public void editRemovesLines() {
+        var result = testEdit(CODE, "        i = 0;\n        total = 0;\n", "        i = 0;\n");
+        assertTrue(result.isIncremental());
+    }
+
+    @Test
+    public void editField() {
+        var result = testEdit(CODE, "boolean flag;", "int[] flags;");
+        assertTrue(result.isIncremental());
+    }
+
+    @Test
+    public void editMethodHeader() {
+        var result = testEdit(CODE, "public int twice(int x) {", "public boolean twice(int x, boolean b) {");
+        assertTrue(result.isIncremental());
+    }
+
+    @Test
+    public void editOutsideMember() {
+        var result = testEdit(CODE, "class IncrementalEdits {", "class IncrementalEdits extends Object {");
+        assertFalse(result.isIncremental());
+    }
+
+    @Test
+    public void editWithSyntaxError() {
+        var result = testEdit(CODE, "return x * 2;", "return x * ;");
+        assertFalse(result.isIncremental());
+    }
+
+    @Test
+    public void consecutiveEdits() {
+        var parser = new JmmParserImpl();
+        var incrementalParser = new JmmIncrementalParser();
+        var code = CODE;
+        var result = parser.parse(code, CONFIG);
+        var table = JmmSymbolTableBuilder.build(result.getRootNode());
+
+        // Each edit is made on the AST changed in place by the previous one
+        String[][] edits = {
+                {"return x * 2;", "int y;\n        y = x;\n        return y * 2;"},
+                {"i = i + 1;", "i = i + 2;"},
+                {"io.println(e.twice(3));", "io.println(e.twice(4));\n        io.println(e.sum(new int[3]));"},
+                {"int total;", "int total;\n        int unused;"},
+                {"public int twice(int x)", "public int thrice(int x)"},
+                {"boolean flag;", "int flag;"}
+        };
+        for (var edit : edits) {
+            var offset = code.indexOf(edit[0]);
+            var reparsed = incrementalParser.reparse(code, result, new TextEdit(offset, edit[0].length(), edit[1]));
+            code = reparsed.code();
+            result = reparsed.parserResult();
+
+            var full = parser.parse(code, CONFIG);
+            assertEquals(ParserTestUtils.dump(full.getRootNode()), ParserTestUtils.dump(result.getRootNode()));
+            assertTrue(reparsed.isIncremental());
+            table = testUpdate(table, reparsed, full);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package pt.up.fe.comp2024.parser;
+
+import org.antlr.v4.runtime.ANTLRInputStream;
+import org.antlr.v4.runtime.Lexer;
+import org.antlr.v4.runtime.Token;
+import org.junit.Test;
+import pt.up.fe.comp.jmm.report.ReportType;
+import pt.up.fe.comp2024.JavammLexer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+public class JmmLexerTest {
+
+    /**
+     * @param lexer
+     * @return the type, text, channel and position of each token, up to and including EOF
+     */
+    private static List<String> tokenize(Lexer lexer) {
+        lexer.removeErrorListeners();
+
+        List<String> tokens = new ArrayList<>();
+        Token token;
+        do {
+            token = lexer.nextToken();
+            tokens.add(token.getType() + " '" + token.getText() + "' channel " + token.getChannel() + " at "
+                    + token.getLine() + ":" + token.getCharPositionInLine() + " ["
+                    + token.getStartIndex() + ", " + token.getStopIndex() + "]");
+        } while (token.getType() != Token.EOF);
+
+        return tokens;
+    }
+
+    @Test
+    public void sameTokensAsAntlr() {
+        for (var file : ParserTestUtils.getJmmResources()) {
+            var code = ParserTestUtils.read(file);
+
+            assertEquals(file.toString(), tokenize(new JavammLexer(new ANTLRInputStream(code))),
+                    tokenize(new JmmLexer(new ANTLRInputStream(code))));
+        }
+    }
+
+    @Test
+    public void sameTokensForEdgeCases() {
+        var codes = List.of("", "a", "0", "00 12", "a1_ $b _", "x/*c*/y//d", "a /* unterminated", "a\r\nb\tc\fd",
+                "int[] a; a.length", "&&||<<=>>=+-*/!=.,;()[]{}", "int... int.. int.x",
+                "classy class1 class", "1a", "& | # @");
+
+        for (var code : codes) {
+            assertEquals(code, tokenize(new JavammLexer(new ANTLRInputStream(code))),
+                    tokenize(new JmmLexer(new ANTLRInputStream(code))));
+        }
+    }
+
+    @Test
+    public void sameAstWithHandwrittenLexer() {
+        var parser = new JmmParserImpl();
+
+        for (var parserName : List.of("antlr", "descent")) {
+            for (var file : ParserTestUtils.getJmmResources()) {
+                var code = ParserTestUtils.read(file);
+                var antlr = parser.parse(code, Map.of("parser", parserName));
+                var handwritten = parser.parse(code, Map.of("parser", parserName, "lexer", "handwritten"));
+
+                var hasErrors = antlr.getReports().stream().anyMatch(report -> report.getType() == ReportType.ERROR);
+                assertEquals(file.toString(), hasErrors,
+                        handwritten.getReports().stream().anyMatch(report -> report.getType() == ReportType.ERROR));
+                if (!hasErrors) {
+                    assertEquals(file.toString(), ParserTestUtils.dump(antlr.getRootNode()),
+                            ParserTestUtils.dump(handwritten.getRootNode()));
+                }
+            }
+        }
+    }
+}
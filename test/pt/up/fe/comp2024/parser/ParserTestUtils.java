@@ -0,0 +1,58 @@
+package pt.up.fe.comp2024.parser;
+
+import pt.up.fe.comp.jmm.ast.JmmNode;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.TreeMap;
+
+public class ParserTestUtils {
+
+    private static final Path TEST_FOLDER = Path.of("test");
+
+    /**
+     * @return the Java-- files of the tests, in a fixed order
+     */
+    public static List<Path> getJmmResources() {
+        try (var files = Files.walk(TEST_FOLDER)) {
+            return files.filter(file -> file.toString().endsWith(".jmm"))
+                    .sorted()
+                    .toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static String read(Path file) {
+        try {
+            return Files.readString(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @param root
+     * @return the kind and every attribute, positions included, of each node of the AST, one node per line
+     */
+    public static String dump(JmmNode root) {
+        var dump = new StringBuilder();
+        dump(root, dump, "");
+        return dump.toString();
+    }
+
+    private static void dump(JmmNode node, StringBuilder dump, String indentation) {
+        var attributes = new TreeMap<String, String>();
+        for (var attribute : node.getAttributes()) {
+            attributes.put(attribute, String.valueOf(node.getObject(attribute)));
+        }
+
+        dump.append(indentation).append(node.getKind()).append(attributes).append('\n');
+        for (var child : node.getChildren()) {
+            dump(child, dump, indentation + "  ");
+        }
+    }
+}